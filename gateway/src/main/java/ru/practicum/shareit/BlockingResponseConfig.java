@@ -0,0 +1,101 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * В блокирующем режиме (shareit-server.reactive=false) Mono контроллеров уже выполнен к моменту возврата:
+ * RestTemplate вызывается при подписке в потоке запроса. Async dispatch MVC для такого Mono только добавляет
+ * работу, поэтому результат забирается block() в том же потоке и пишется обычным обработчиком ResponseEntity.
+ */
+@Configuration
+@ConditionalOnProperty(name = "shareit-server.reactive", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class BlockingResponseConfig implements InitializingBean {
+    private final RequestMappingHandlerAdapter handlerAdapter;
+
+    @Override
+    public void afterPropertiesSet() {
+        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(handlerAdapter.getReturnValueHandlers());
+        handlers.add(0, new BlockingMonoReturnValueHandler(List.copyOf(handlers)));
+        handlerAdapter.setReturnValueHandlers(handlers);
+    }
+
+    private static final class BlockingMonoReturnValueHandler implements HandlerMethodReturnValueHandler {
+        private final List<HandlerMethodReturnValueHandler> delegates;
+
+        private BlockingMonoReturnValueHandler(List<HandlerMethodReturnValueHandler> delegates) {
+            this.delegates = delegates;
+        }
+
+        @Override
+        public boolean supportsReturnType(MethodParameter returnType) {
+            return Mono.class.isAssignableFrom(returnType.getParameterType());
+        }
+
+        @Override
+        public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                      ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+            Object value;
+            try {
+                value = returnValue == null ? null : ((Mono<?>) returnValue).block();
+            } catch (RuntimeException e) {
+                Throwable cause = Exceptions.unwrap(e);
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+            MethodParameter valueType = new MonoValueParameter(returnType);
+            for (HandlerMethodReturnValueHandler delegate : delegates) {
+                if (delegate.supportsReturnType(valueType)) {
+                    delegate.handleReturnValue(value, valueType, mavContainer, webRequest);
+                    return;
+                }
+            }
+            throw new IllegalStateException("Нет обработчика для результата " + valueType.getGenericParameterType());
+        }
+    }
+
+    /**
+     * Тип возврата метода с T вместо Mono&lt;T&gt;.
+     */
+    private static final class MonoValueParameter extends MethodParameter {
+        private final ResolvableType valueType;
+
+        private MonoValueParameter(MethodParameter returnType) {
+            this(returnType, ResolvableType.forMethodParameter(returnType).getGeneric());
+        }
+
+        private MonoValueParameter(MethodParameter original, ResolvableType valueType) {
+            super(original);
+            this.valueType = valueType;
+        }
+
+        @Override
+        public Class<?> getParameterType() {
+            return valueType.toClass();
+        }
+
+        @Override
+        public Type getGenericParameterType() {
+            return valueType.getType();
+        }
+
+        @Override
+        public MonoValueParameter clone() {
+            return new MonoValueParameter(this, valueType);
+        }
+    }
+}
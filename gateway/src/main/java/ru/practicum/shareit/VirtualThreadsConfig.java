@@ -0,0 +1,52 @@
+package ru.practicum.shareit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Экспериментально: обработка запросов Tomcat на виртуальных потоках (Java 21+), включается
+ * shareit.virtual-threads.enabled=true. Нагрузочно на Java 21 не проверялось.
+ * В блокирующем режиме вызовы сервера через RestTemplate идут в потоке запроса, то есть тоже на виртуальном
+ * потоке, и число одновременных запросов ограничивает пул соединений HTTP-клиента, а не пул Tomcat.
+ * В реактивном режиме вызовы идут через WebClient на потоках Netty, а повторы блокирующего режима -
+ * на boundedElastic, эти потоки остаются обычными.
+ */
+@Configuration
+@ConditionalOnProperty(name = "shareit.virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfig implements DisposableBean {
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            protocolHandler.setExecutor(executor);
+            log.warn("Запросы обрабатываются на виртуальных потоках (экспериментальный режим)");
+        };
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() через reflection: код собирается для Java 11.
+     * На Java до 21 запуск прерывается, чтобы включенный флаг не игнорировался молча.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("shareit.virtual-threads.enabled=true требует Java 21+, используется Java "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
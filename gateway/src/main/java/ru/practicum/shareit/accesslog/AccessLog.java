@@ -0,0 +1,174 @@
+package ru.practicum.shareit.accesslog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал запросов gateway. Потоки запросов только добавляют запись в кольцо в памяти,
+ * фоновый поток раз в rollInterval переносит записи в access.log и ротирует его по размеру.
+ */
+@Component
+@EnableConfigurationProperties(AccessLogProperties.class)
+@Slf4j
+public class AccessLog {
+    public static final long NO_USER = -1;
+
+    private final AccessLogRing ring;
+
+    private final Path file;
+
+    private final long maxFileSize;
+
+    private final int maxFiles;
+
+    private final Counter records;
+
+    private final Counter dropped;
+
+    private final ScheduledExecutorService roller;
+
+    private Writer out;
+
+    private long fileSize;
+
+    public AccessLog(AccessLogProperties properties, MeterRegistry registry) throws IOException {
+        this.records = registry.counter("shareit.gateway.access-log.records");
+        this.dropped = registry.counter("shareit.gateway.access-log.dropped");
+        this.maxFileSize = properties.getMaxFileSize().toBytes();
+        this.maxFiles = properties.getMaxFiles();
+        Path directory = Path.of(properties.getDirectory());
+        this.file = directory.resolve("access.log");
+        if (!properties.isEnabled()) {
+            this.ring = null;
+            this.roller = null;
+            return;
+        }
+        Files.createDirectories(directory);
+        this.ring = new AccessLogRing(directory.resolve("access.ring"), properties.getCapacity());
+        open();
+        StringBuilder recovered = new StringBuilder();
+        ring.recover(record -> format(record, recovered));
+        write(recovered);
+        this.roller = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "access-log-roller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getRollInterval().toMillis();
+        roller.scheduleWithFixedDelay(this::roll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Не блокирует: при переполнении кольца теряются самые старые непрочитанные записи.
+     */
+    public void record(long timestamp, long durationNanos, long userId, int status, String method,
+                       String path, @Nullable String query, boolean sampled) {
+        if (ring != null) {
+            ring.append(timestamp, durationNanos, userId, status, method, path, query, sampled);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        if (ring == null) {
+            return;
+        }
+        roller.shutdown();
+        roller.awaitTermination(5, TimeUnit.SECONDS);
+        roll();
+        out.close();
+        ring.close();
+    }
+
+    private void roll() {
+        StringBuilder lines = new StringBuilder();
+        long lost = ring.drain(record -> format(record, lines));
+        if (lost > 0) {
+            dropped.increment(lost);
+            log.warn("Журнал запросов не успевает за запросами, потеряно записей: {}", lost);
+        }
+        try {
+            write(lines);
+        } catch (IOException e) {
+            log.warn("Не удалось записать журнал запросов {}", file, e);
+        }
+    }
+
+    private void write(StringBuilder lines) throws IOException {
+        if (lines.length() == 0) {
+            return;
+        }
+        if (fileSize >= maxFileSize) {
+            rotate();
+        }
+        String text = lines.toString();
+        out.write(text);
+        out.flush();
+        fileSize += text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private void format(AccessLogRing.Record record, StringBuilder lines) {
+        records.increment();
+        lines.append(Instant.ofEpochMilli(record.timestamp))
+                .append(' ').append(record.method)
+                .append(' ').append(record.uri);
+        if ((record.flags & AccessLogRing.FLAG_TRUNCATED) != 0) {
+            lines.append("...");
+        }
+        lines.append(' ').append(record.status)
+                .append(' ').append(String.format(Locale.ROOT, "%.3fms", record.durationNanos / 1e6));
+        if (record.userId != NO_USER) {
+            lines.append(" user=").append(record.userId);
+        }
+        if ((record.flags & AccessLogRing.FLAG_SAMPLED) != 0) {
+            lines.append(" wire");
+        }
+        lines.append('\n');
+    }
+
+    private void open() throws IOException {
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileSize = Files.size(file);
+    }
+
+    /**
+     * access.log -> access.log.1 -> ... -> access.log.maxFiles, самый старый архив удаляется.
+     */
+    private void rotate() throws IOException {
+        out.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path archive = archive(i);
+            if (Files.exists(archive)) {
+                Files.move(archive, archive(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(file, archive(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path archive(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
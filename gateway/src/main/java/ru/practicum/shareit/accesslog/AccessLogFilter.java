@@ -0,0 +1,100 @@
+package ru.practicum.shareit.accesslog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Пишет каждый запрос в AccessLog после отправки ответа, в том числе отклоненные RateLimitFilter.
+ * Для асинхронных запросов (контроллеры возвращают Mono) запись делается по завершении обработки.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class AccessLogFilter extends OncePerRequestFilter {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    private final AccessLog accessLog;
+
+    private final WireLogSampler wireLogSampler;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+        boolean sampled = wireLogSampler.sample();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (sampled) {
+                wireLogSampler.clear();
+            }
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(timestamp, start, sampled));
+            } else {
+                record(request, response, timestamp, start, sampled);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response,
+                        long timestamp, long start, boolean sampled) {
+        accessLog.record(timestamp, System.nanoTime() - start, userId(request), response.getStatus(),
+                request.getMethod(), request.getRequestURI(), request.getQueryString(), sampled);
+    }
+
+    private static long userId(HttpServletRequest request) {
+        String user = request.getHeader(USER_HEADER);
+        if (user == null) {
+            return AccessLog.NO_USER;
+        }
+        try {
+            return Long.parseLong(user);
+        } catch (NumberFormatException e) {
+            return AccessLog.NO_USER;
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+        private final long timestamp;
+
+        private final long start;
+
+        private final boolean sampled;
+
+        private CompletionListener(long timestamp, long start, boolean sampled) {
+            this.timestamp = timestamp;
+            this.start = start;
+            this.sampled = sampled;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record((HttpServletRequest) event.getSuppliedRequest(), (HttpServletResponse) event.getSuppliedResponse(),
+                    timestamp, start, sampled);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
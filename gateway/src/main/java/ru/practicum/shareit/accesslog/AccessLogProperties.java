@@ -0,0 +1,51 @@
+package ru.practicum.shareit.accesslog;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Журнал запросов gateway и выборочное подробное логирование запросов к серверу.
+ */
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "shareit.access-log")
+public class AccessLogProperties {
+    boolean enabled = true;
+
+    /**
+     * Каталог для access.log, его архивов и файла кольца access.ring.
+     */
+    String directory = "logs";
+
+    /**
+     * Записей в кольце, степень двойки. Запись занимает 256 байт.
+     */
+    int capacity = 16384;
+
+    /**
+     * Как часто записи из кольца переносятся в access.log.
+     */
+    Duration rollInterval = Duration.ofMillis(500);
+
+    DataSize maxFileSize = DataSize.ofMegabytes(10);
+
+    /**
+     * Сколько архивов access.log.N хранить.
+     */
+    int maxFiles = 5;
+
+    /**
+     * Доля запросов, для которых пишутся DEBUG-логи логгеров из wireLoggers, от 0 до 1.
+     */
+    double wireSampleRate = 0.01;
+
+    List<String> wireLoggers = new ArrayList<>(List.of(
+            "org.springframework.web.client.RestTemplate", "org.apache.http", "httpclient.wire"));
+}
@@ -0,0 +1,238 @@
+package ru.practicum.shareit.accesslog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Кольцо записей фиксированного размера в файле, отображенном в память.
+ * Писатель занимает слот инкрементом счетчика и не ждет ни других писателей, ни читателя: если читатель
+ * отстал больше чем на размер кольца, старые записи перезаписываются и считаются потерянными.
+ * Перед записью слот помечается маркером -(seq + 1), после - seq + 1. Читатель один, он сверяет маркер
+ * до и после чтения. Записи остаются в файле при падении процесса и дочитываются при следующем запуске,
+ * для этого в первом слоте файла хранится позиция читателя.
+ */
+class AccessLogRing implements Closeable {
+    static final int RECORD_SIZE = 256;
+
+    private static final int READ_POSITION = 0;
+
+    private static final int MARKER = 0;
+
+    private static final int TIMESTAMP = 8;
+
+    private static final int DURATION = 16;
+
+    private static final int USER = 24;
+
+    private static final int STATUS = 32;
+
+    private static final int METHOD = 34;
+
+    private static final int FLAGS = 35;
+
+    private static final int URI_LENGTH = 36;
+
+    private static final int URI = 38;
+
+    static final int MAX_URI = RECORD_SIZE - URI;
+
+    static final int FLAG_SAMPLED = 1;
+
+    static final int FLAG_TRUNCATED = 2;
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS"};
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Следующая запись для читателя, меняется только потоком читателя.
+     */
+    private long readSequence;
+
+    AccessLogRing(Path file, int capacity) throws IOException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1 || capacity >= Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("Размер кольца журнала запросов должен быть степенью двойки");
+        }
+        this.capacity = capacity;
+        long size = (long) (capacity + 1) * RECORD_SIZE;
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() != size) {
+            channel.truncate(0);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Передает записи, оставшиеся в файле от прошлого запуска, и очищает кольцо.
+     * Вызывается до первой записи.
+     */
+    void recover(Consumer<Record> consumer) {
+        long position = buffer.getLong(READ_POSITION);
+        List<Record> records = new ArrayList<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = (slot + 1) * RECORD_SIZE;
+            long marker = buffer.getLong(offset + MARKER);
+            if (marker > position) {
+                records.add(read(offset, marker));
+            }
+            buffer.putLong(offset + MARKER, 0);
+        }
+        buffer.putLong(READ_POSITION, 0);
+        records.sort(Comparator.comparingLong(record -> record.sequence));
+        records.forEach(consumer);
+    }
+
+    void append(long timestamp, long durationNanos, long userId, int status, String method,
+                String path, String query, boolean sampled) {
+        long seq = next.getAndIncrement();
+        int offset = offset(seq);
+        LONGS.setVolatile(buffer, offset + MARKER, -(seq + 1));
+        // поля не должны стать видны раньше открытого маркера, иначе читатель прочитает новые поля,
+        // при повторной проверке увидит старый закрытый маркер и примет смесь двух записей
+        VarHandle.storeStoreFence();
+        buffer.putLong(offset + TIMESTAMP, timestamp);
+        buffer.putLong(offset + DURATION, durationNanos);
+        buffer.putLong(offset + USER, userId);
+        buffer.putShort(offset + STATUS, (short) status);
+        buffer.put(offset + METHOD, methodIndex(method));
+        int length = putAscii(offset + URI, 0, path);
+        if (query != null && length < MAX_URI) {
+            buffer.put(offset + URI + length, (byte) '?');
+            length = putAscii(offset + URI, length + 1, query);
+        }
+        int fullLength = path.length() + (query != null ? query.length() + 1 : 0);
+        buffer.putShort(offset + URI_LENGTH, (short) length);
+        buffer.put(offset + FLAGS, (byte) ((sampled ? FLAG_SAMPLED : 0) | (length < fullLength ? FLAG_TRUNCATED : 0)));
+        LONGS.setRelease(buffer, offset + MARKER, seq + 1);
+    }
+
+    /**
+     * Передает записи, закрытые после прошлого вызова, и возвращает число потерянных.
+     * Вызывается из одного потока. На записи, которую еще пишут, останавливается до следующего вызова.
+     */
+    long drain(Consumer<Record> consumer) {
+        long lost = 0;
+        long written = next.get();
+        if (written - readSequence > capacity) {
+            lost += written - capacity - readSequence;
+            readSequence = written - capacity;
+        }
+        while (readSequence < written) {
+            long seq = readSequence;
+            int offset = offset(seq);
+            long marker = (long) LONGS.getAcquire(buffer, offset + MARKER);
+            if (Math.abs(marker) > seq + 1) {
+                lost++;
+            } else if (marker == seq + 1) {
+                Record record = read(offset, marker);
+                VarHandle.loadLoadFence();
+                if ((long) LONGS.getVolatile(buffer, offset + MARKER) == marker) {
+                    consumer.accept(record);
+                } else {
+                    lost++;
+                }
+            } else {
+                break;
+            }
+            readSequence++;
+        }
+        buffer.putLong(READ_POSITION, readSequence);
+        return lost;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int offset(long seq) {
+        return ((int) (seq & (capacity - 1)) + 1) * RECORD_SIZE;
+    }
+
+    private int putAscii(int offset, int from, String value) {
+        int length = Math.min(value.length(), MAX_URI - from);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            buffer.put(offset + from + i, c < 0x80 ? (byte) c : (byte) '?');
+        }
+        return from + length;
+    }
+
+    private Record read(int offset, long marker) {
+        int length = Math.min(Short.toUnsignedInt(buffer.getShort(offset + URI_LENGTH)), MAX_URI);
+        char[] uri = new char[length];
+        for (int i = 0; i < length; i++) {
+            uri[i] = (char) buffer.get(offset + URI + i);
+        }
+        int method = Byte.toUnsignedInt(buffer.get(offset + METHOD));
+        return new Record(marker - 1,
+                buffer.getLong(offset + TIMESTAMP),
+                buffer.getLong(offset + DURATION),
+                buffer.getLong(offset + USER),
+                Short.toUnsignedInt(buffer.getShort(offset + STATUS)),
+                method < METHODS.length ? METHODS[method] : "OTHER",
+                new String(uri),
+                buffer.get(offset + FLAGS));
+    }
+
+    private static byte methodIndex(String method) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i].equals(method)) {
+                return (byte) i;
+            }
+        }
+        return (byte) METHODS.length;
+    }
+
+    static final class Record {
+        final long sequence;
+
+        final long timestamp;
+
+        final long durationNanos;
+
+        final long userId;
+
+        final int status;
+
+        final String method;
+
+        final String uri;
+
+        final int flags;
+
+        private Record(long sequence, long timestamp, long durationNanos, long userId, int status,
+                       String method, String uri, int flags) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.durationNanos = durationNanos;
+            this.userId = userId;
+            this.status = status;
+            this.method = method;
+            this.uri = uri;
+            this.flags = flags;
+        }
+    }
+}
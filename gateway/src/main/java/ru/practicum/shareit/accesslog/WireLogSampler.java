@@ -0,0 +1,117 @@
+package ru.practicum.shareit.accesslog;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.springframework.stereotype.Component;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * DEBUG-логи RestTemplate и Apache HttpClient пишутся только для выбранной доли запросов.
+ * Для остальных запросов isDebugEnabled() у этих логгеров возвращает false, и сообщения даже не форматируются.
+ * Запрос выбирается в AccessLogFilter, признак хранится в MDC потока запроса. BaseClient запоминает его
+ * при сборке вызова и ставит в MDC потока, где выполняется блокирующий запрос (повторы на boundedElastic),
+ * а код, собирающий вызовы не в потоке запроса (пакеты), передает его через контекст Reactor - propagate().
+ * В реактивном режиме логи WebClient и Reactor Netty пишутся в потоках Netty без MDC и не выбираются.
+ */
+@Component
+public class WireLogSampler {
+    static final String MDC_KEY = "wire";
+
+    private static final String CONTEXT_KEY = WireLogSampler.class.getName();
+
+    private final double rate;
+
+    private final List<String> loggers;
+
+    private final LoggerContext context;
+
+    private final TurboFilter filter = new TurboFilter() {
+        @Override
+        public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                                  Throwable t) {
+            if (level.isGreaterOrEqual(Level.INFO) || MDC.get(MDC_KEY) != null) {
+                return FilterReply.NEUTRAL;
+            }
+            String name = logger.getName();
+            for (String prefix : loggers) {
+                if (name.startsWith(prefix)) {
+                    return FilterReply.DENY;
+                }
+            }
+            return FilterReply.NEUTRAL;
+        }
+    };
+
+    public WireLogSampler(AccessLogProperties properties) {
+        this.rate = properties.getWireSampleRate();
+        this.loggers = List.copyOf(properties.getWireLoggers());
+        this.context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        filter.setName("wire-log-sampler");
+        filter.start();
+        context.addTurboFilter(filter);
+    }
+
+    /**
+     * Решает, писать ли подробные логи для текущего запроса. Если да, до clear() они пишутся в этом потоке.
+     */
+    public boolean sample() {
+        if (rate <= 0 || rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return false;
+        }
+        MDC.put(MDC_KEY, "1");
+        return true;
+    }
+
+    public void clear() {
+        MDC.remove(MDC_KEY);
+    }
+
+    public static boolean isSampled() {
+        return MDC.get(MDC_KEY) != null;
+    }
+
+    public static boolean isSampled(ContextView context) {
+        return context.hasKey(CONTEXT_KEY);
+    }
+
+    /**
+     * Переносит признак текущего потока в контекст Reactor, вызывать в потоке запроса.
+     */
+    public static Function<Context, Context> propagate() {
+        boolean sampled = isSampled();
+        return context -> sampled ? context.put(CONTEXT_KEY, Boolean.TRUE) : context;
+    }
+
+    /**
+     * Выполняет call с признаком в MDC текущего потока, если sampled.
+     */
+    public static <T> T callSampled(boolean sampled, Callable<T> call) throws Exception {
+        if (!sampled || isSampled()) {
+            return call.call();
+        }
+        MDC.put(MDC_KEY, "1");
+        try {
+            return call.call();
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        context.getTurboFilterList().remove(filter);
+    }
+}
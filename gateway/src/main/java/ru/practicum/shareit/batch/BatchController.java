@@ -0,0 +1,159 @@
+package ru.practicum.shareit.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.shareit.accesslog.WireLogSampler;
+import ru.practicum.shareit.batch.dto.BatchOperationDto;
+import ru.practicum.shareit.batch.dto.BatchRequestDto;
+import ru.practicum.shareit.batch.dto.BatchResponseDto;
+import ru.practicum.shareit.batch.dto.BatchResultDto;
+import ru.practicum.shareit.exceptions.BookingStatusException;
+import ru.practicum.shareit.exceptions.ErrorResponse;
+import ru.practicum.shareit.ratelimit.RateLimiter;
+
+import javax.validation.Valid;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Несколько GET-запросов за один вызов. Операции выполняются параллельно через клиенты gateway,
+ * результаты возвращаются в порядке запроса, у каждого свой статус.
+ */
+@Controller
+@RequestMapping(path = "/batch")
+@RequiredArgsConstructor
+@Slf4j
+@Validated
+public class BatchController {
+    private final BatchRouter batchRouter;
+
+    private final RateLimiter rateLimiter;
+
+    private final ObjectMapper objectMapper;
+
+    @PostMapping
+    public Mono<ResponseEntity<Object>> batch(@RequestHeader(value = "X-Sharer-User-Id", required = false) Long userId,
+                                              @RequestBody @Valid BatchRequestDto batch) {
+        log.debug("Пакет из {} запросов, userId={}", batch.getRequests().size(), userId);
+        return Flux.fromIterable(batch.getRequests())
+                .flatMapSequential(operation -> execute(operation, userId).subscribeOn(Schedulers.boundedElastic()))
+                .collectList()
+                .map(results -> ResponseEntity.<Object>ok(new BatchResponseDto(results)))
+                .contextWrite(WireLogSampler.propagate());
+    }
+
+    private Mono<BatchResultDto> execute(BatchOperationDto operation, Long userId) {
+        return Mono.defer(() -> {
+            if (!HttpMethod.GET.name().equalsIgnoreCase(operation.getMethod())) {
+                return Mono.just(error(operation, HttpStatus.METHOD_NOT_ALLOWED,
+                        "В пакете поддерживаются только GET-запросы"));
+            }
+            UriComponents uri = UriComponentsBuilder.fromUriString(operation.getPath()).build();
+            String path = uri.getPath() == null ? "" : uri.getPath();
+            long wait = acquire(path, userId);
+            if (wait != RateLimiter.ALLOWED) {
+                BatchResultDto result = error(operation, HttpStatus.TOO_MANY_REQUESTS,
+                        "Слишком много запросов, повторите позже");
+                result.getHeaders().put(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1));
+                return Mono.just(result);
+            }
+            Mono<ResponseEntity<Object>> call = batchRouter.route(path, decode(uri.getQueryParams()), userId);
+            if (call == null) {
+                return Mono.just(error(operation, HttpStatus.NOT_FOUND, "Неизвестный запрос: " + path));
+            }
+            return call.map(response -> result(operation, response));
+        })
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(error(operation, HttpStatus.BAD_REQUEST, e.getMessage())))
+                .onErrorResume(BookingStatusException.class,
+                        e -> Mono.just(error(operation, HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage())))
+                .onErrorResume(e -> {
+                    log.warn("Ошибка запроса {} в пакете", operation.getPath(), e);
+                    return Mono.just(error(operation, HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()));
+                });
+    }
+
+    /**
+     * Каждая операция расходует лимит своего маршрута, как отдельный запрос.
+     */
+    private long acquire(String path, Long userId) {
+        RateLimiter.Route route = userId == null ? null : rateLimiter.route(HttpMethod.GET.name(), path);
+        return route == null ? RateLimiter.ALLOWED : rateLimiter.tryAcquire(route, userId);
+    }
+
+    private BatchResultDto result(BatchOperationDto operation, ResponseEntity<Object> response) {
+        Map<String, String> headers = new HashMap<>();
+        response.getHeaders().forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) && !values.isEmpty()) {
+                headers.put(name, values.get(0));
+            }
+        });
+        return new BatchResultDto(operation.getId(), response.getStatusCodeValue(), headers,
+                json(response.getBody(), response.getHeaders().getContentType()));
+    }
+
+    private BatchResultDto error(BatchOperationDto operation, HttpStatus status, String message) {
+        return new BatchResultDto(operation.getId(), status.value(), new HashMap<>(), write(new ErrorResponse(message)));
+    }
+
+    /**
+     * Тело ответа как JSON для вставки в пакет без разбора. Тело, пришедшее текстом (байты в режиме passthrough
+     * или строка ошибки), вставляется как есть только с типом JSON, иначе - JSON-строкой.
+     */
+    private String json(Object body, @Nullable MediaType contentType) {
+        if (body instanceof byte[]) {
+            byte[] bytes = (byte[]) body;
+            body = bytes.length == 0 ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (body == null || body instanceof String && ((String) body).isEmpty()) {
+            return null;
+        }
+        if (body instanceof String && isJson(contentType)) {
+            return (String) body;
+        }
+        return write(body);
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    private static boolean isJson(@Nullable MediaType contentType) {
+        return contentType != null && (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || contentType.getSubtype().endsWith("+json"));
+    }
+
+    private static MultiValueMap<String, String> decode(MultiValueMap<String, String> query) {
+        MultiValueMap<String, String> decoded = new LinkedMultiValueMap<>();
+        query.forEach((name, values) -> values.forEach(value -> decoded.add(
+                URLDecoder.decode(name, StandardCharsets.UTF_8),
+                value == null ? "" : URLDecoder.decode(value, StandardCharsets.UTF_8))));
+        return decoded;
+    }
+}
@@ -0,0 +1,154 @@
+package ru.practicum.shareit.batch;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.booking.BookingClient;
+import ru.practicum.shareit.booking.dto.BookingState;
+import ru.practicum.shareit.item.ItemClient;
+import ru.practicum.shareit.request.ItemRequestClient;
+import ru.practicum.shareit.user.UserClient;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Сопоставляет GET-операции пакета с методами клиентов, с теми же параметрами по умолчанию и проверками,
+ * что и у контроллеров.
+ */
+@Component
+public class BatchRouter {
+    private final Map<PathPattern, Function<Operation, Mono<ResponseEntity<Object>>>> routes = new LinkedHashMap<>();
+
+    public BatchRouter(ItemClient itemClient, BookingClient bookingClient, ItemRequestClient itemRequestClient,
+                       UserClient userClient) {
+        route("/items/search", op -> itemClient.getItemsBySearch(op.userId(), op.param("text"),
+                op.from(), op.size(20)));
+        route("/items/search/free", op -> itemClient.getFreeItemsBySearch(op.userId(), op.param("text"),
+                op.dateTime("start"), op.dateTime("end"), op.from(), op.size(20)));
+        route("/items/{itemId}/availability", op -> itemClient.getFreeSlots(op.userId(), op.id("itemId"),
+                op.dateTime("from"), op.dateTime("to")));
+        route("/items/{itemId}", op -> itemClient.getItemById(op.userId(), op.id("itemId")));
+        route("/items", op -> itemClient.getItems(op.userId()));
+        route("/bookings/owner", op -> op.param("cursor", null) != null
+                ? bookingClient.getOwnerBookingsAfter(op.userId(), op.state(), op.param("cursor"), op.size(10))
+                : bookingClient.getOwnerBookings(op.userId(), op.state(), op.from(), op.size(10)));
+        route("/bookings/{bookingId}", op -> bookingClient.getBooking(op.userId(), op.id("bookingId")));
+        route("/bookings", op -> op.param("cursor", null) != null
+                ? bookingClient.getBookingsAfter(op.userId(), op.state(), op.param("cursor"), op.size(10))
+                : bookingClient.getBookings(op.userId(), op.state(), op.from(), op.size(10)));
+        route("/requests/all", op -> itemRequestClient.getAllRequests(op.userId(), op.from(), op.size(20)));
+        route("/requests/{requestId}", op -> itemRequestClient.getRequest(op.userId(), op.id("requestId")));
+        route("/requests", op -> itemRequestClient.getRequests(op.userId()));
+        route("/users/{userId}", op -> userClient.getUser(op.id("userId")));
+        route("/users", op -> userClient.getUsers());
+    }
+
+    /**
+     * Вызов клиента или null, если путь не поддерживается.
+     * Ошибки в параметрах приходят как IllegalArgumentException.
+     */
+    @Nullable
+    public Mono<ResponseEntity<Object>> route(String path, MultiValueMap<String, String> query, @Nullable Long userId) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (Map.Entry<PathPattern, Function<Operation, Mono<ResponseEntity<Object>>>> route : routes.entrySet()) {
+            PathPattern.PathMatchInfo match = route.getKey().matchAndExtract(container);
+            if (match != null) {
+                return route.getValue().apply(new Operation(match.getUriVariables(), query, userId));
+            }
+        }
+        return null;
+    }
+
+    private void route(String pattern, Function<Operation, Mono<ResponseEntity<Object>>> handler) {
+        routes.put(PathPatternParser.defaultInstance.parse(pattern), handler);
+    }
+
+    private static final class Operation {
+        private final Map<String, String> variables;
+
+        private final MultiValueMap<String, String> query;
+
+        private final Long userId;
+
+        private Operation(Map<String, String> variables, MultiValueMap<String, String> query, Long userId) {
+            this.variables = variables;
+            this.query = query;
+            this.userId = userId;
+        }
+
+        long userId() {
+            if (userId == null) {
+                throw new IllegalArgumentException("Не указан заголовок X-Sharer-User-Id");
+            }
+            return userId;
+        }
+
+        long id(String name) {
+            long id = parseLong(name, variables.get(name));
+            if (id <= 0) {
+                throw new IllegalArgumentException("Параметр " + name + " должен быть положительным");
+            }
+            return id;
+        }
+
+        String param(String name) {
+            String value = query.getFirst(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Не указан параметр " + name);
+            }
+            return value;
+        }
+
+        @Nullable
+        String param(String name, @Nullable String defaultValue) {
+            String value = query.getFirst(name);
+            return value == null ? defaultValue : value;
+        }
+
+        int from() {
+            int from = (int) parseLong("from", param("from", "0"));
+            if (from < 0) {
+                throw new IllegalArgumentException("Параметр from не может быть отрицательным");
+            }
+            return from;
+        }
+
+        int size(int defaultSize) {
+            int size = (int) parseLong("size", param("size", String.valueOf(defaultSize)));
+            if (size <= 0) {
+                throw new IllegalArgumentException("Параметр size должен быть положительным");
+            }
+            return size;
+        }
+
+        BookingState state() {
+            return BookingState.from(param("state", "all"));
+        }
+
+        LocalDateTime dateTime(String name) {
+            String value = param(name);
+            try {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Некорректная дата в параметре " + name + ": " + value);
+            }
+        }
+
+        private static long parseLong(String name, String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректное значение параметра " + name + ": " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.batch.dto;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+public class BatchOperationDto {
+    /**
+     * Идентификатор операции, возвращается в ответе как есть.
+     */
+    String id;
+
+    @NotBlank
+    String method = "GET";
+
+    /**
+     * Путь с параметрами, например /bookings?state=FUTURE.
+     */
+    @NotBlank
+    String path;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.batch.dto;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+public class BatchRequestDto {
+    public static final int MAX_OPERATIONS = 20;
+
+    @NotEmpty
+    @Size(max = MAX_OPERATIONS)
+    List<@Valid BatchOperationDto> requests;
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.batch.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+public class BatchResponseDto {
+    List<BatchResultDto> responses;
+}
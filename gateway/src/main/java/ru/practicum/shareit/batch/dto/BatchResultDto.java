@@ -0,0 +1,28 @@
+package ru.practicum.shareit.batch.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Map;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+public class BatchResultDto {
+    String id;
+
+    int status;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    Map<String, String> headers;
+
+    /**
+     * JSON ответа сервера без повторного разбора.
+     */
+    @JsonRawValue
+    String body;
+}
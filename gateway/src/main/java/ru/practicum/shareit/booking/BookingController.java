@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 
@@ -22,43 +23,53 @@ public class BookingController {
 	private final BookingClient bookingClient;
 
 	@GetMapping
-	public ResponseEntity<Object> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
-											  @RequestParam(name = "state", defaultValue = "all") String stateParam,
-											  @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-											  @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+	public Mono<ResponseEntity<Object>> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+											        @RequestParam(name = "state", defaultValue = "all") String stateParam,
+											        @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+											        @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+											        @RequestParam(name = "cursor", required = false) String cursor) {
 		BookingState state = BookingState.from(stateParam);
-		log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
+		if (cursor != null) {
+			log.debug("Get booking with state {}, userId={}, cursor={}, size={}", stateParam, userId, cursor, size);
+			return bookingClient.getBookingsAfter(userId, state, cursor, size);
+		}
+		log.debug("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
 		return bookingClient.getBookings(userId, state, from, size);
 	}
 
 	@PostMapping
-	public ResponseEntity<Object> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
-										   @RequestBody @Valid BookItemRequestDto requestDto) {
-		log.info("Creating booking {}, userId={}", requestDto, userId);
+	public Mono<ResponseEntity<Object>> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
+										         @RequestBody @Valid BookItemRequestDto requestDto) {
+		log.debug("Creating booking {}, userId={}", requestDto, userId);
 		return bookingClient.bookItem(userId, requestDto);
 	}
 
 	@GetMapping("/{bookingId}")
-	public ResponseEntity<Object> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
-											 @PathVariable Long bookingId) {
-		log.info("Get booking {}, userId={}", bookingId, userId);
+	public Mono<ResponseEntity<Object>> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
+											       @PathVariable Long bookingId) {
+		log.debug("Get booking {}, userId={}", bookingId, userId);
 		return bookingClient.getBooking(userId, bookingId);
 	}
 
 	@PatchMapping("/{bookingId}")
-	public ResponseEntity<Object> patchBooking(@PathVariable Long bookingId,
-											   @RequestHeader("X-Sharer-User-Id") Long ownerId,
-											   @RequestParam(name = "approved") Boolean approve) {
+	public Mono<ResponseEntity<Object>> patchBooking(@PathVariable Long bookingId,
+											         @RequestHeader("X-Sharer-User-Id") Long ownerId,
+											         @RequestParam(name = "approved") Boolean approve) {
 		return bookingClient.patchBooking(bookingId, ownerId, approve);
 	}
 
 	@GetMapping("/owner")
-	public ResponseEntity<Object> getOwnerBookings(@RequestHeader("X-Sharer-User-Id") long userId,
-												   @RequestParam(name = "state", defaultValue = "all") String stateParam,
-												   @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-												   @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+	public Mono<ResponseEntity<Object>> getOwnerBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+												         @RequestParam(name = "state", defaultValue = "all") String stateParam,
+												         @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+												         @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+												         @RequestParam(name = "cursor", required = false) String cursor) {
 		BookingState state = BookingState.from(stateParam);
-		log.info("Get booking for owner with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
+		if (cursor != null) {
+			log.debug("Get booking for owner with state {}, userId={}, cursor={}, size={}", stateParam, userId, cursor, size);
+			return bookingClient.getOwnerBookingsAfter(userId, state, cursor, size);
+		}
+		log.debug("Get booking for owner with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
 		return bookingClient.getOwnerBookings(userId, state, from, size);
 	}
 }
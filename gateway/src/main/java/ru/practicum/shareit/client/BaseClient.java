@@ -1,90 +1,459 @@
 package ru.practicum.shareit.client;
 
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+import ru.practicum.shareit.accesslog.WireLogSampler;
+import ru.practicum.shareit.exceptions.ErrorResponse;
 
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+
+@Slf4j
 public class BaseClient {
+    /**
+     * Заголовки одного соединения, их не передаем клиенту gateway. Content-Encoding тоже: ответ сервера
+     * распакован HTTP-клиентом, а сжатие для клиента gateway выбирает Tomcat gateway.
+     */
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.UPGRADE, HttpHeaders.PROXY_AUTHENTICATE,
+            HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.DATE);
+
+    /**
+     * Заголовки условного GET, их передаем серверу, чтобы он мог ответить 304.
+     */
+    private static final List<String> CONDITIONAL_HEADERS = List.of(HttpHeaders.IF_NONE_MATCH,
+            HttpHeaders.IF_MODIFIED_SINCE);
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private static final List<MediaType> SMILE_ACCEPT = List.of(SMILE, MediaType.APPLICATION_JSON);
+
+    private final String name;
+
     protected final RestTemplate rest;
 
-    public BaseClient(RestTemplate rest) {
+    protected final WebClient web;
+
+    private boolean reactive;
+
+    private boolean passthrough = true;
+
+    private boolean coalescing = true;
+
+    private boolean smile;
+
+    /**
+     * GET-запросы, которые сейчас выполняются, по ключу путь + параметры + X-Sharer-User-Id (кроме shared).
+     */
+    private final Map<String, CompletableFuture<ResponseEntity<Object>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * GET-запросы, получившие ответ уже выполняющегося запроса вместо своего запроса к серверу.
+     */
+    private Counter coalesced;
+
+    private Semaphore bulkhead;
+
+    private Counter bulkheadRejections;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Counter circuitRejections;
+
+    /**
+     * Перцентиль времени ответа на GET, задержка второго запроса. null - хеджирование выключено.
+     */
+    private LatencyPercentile hedgeLatency;
+
+    private ResilienceProperties.Hedge hedgeProperties;
+
+    private Counter hedgesFired;
+
+    private Counter hedgesWon;
+
+    private RetryBackoffSpec retry;
+
+    private ResilienceProperties resilience;
+
+    private MeterRegistry meterRegistry;
+
+    public BaseClient(String name, RestTemplate rest, WebClient web) {
+        this.name = name;
         this.rest = rest;
+        this.web = web;
+    }
+
+    /**
+     * Ограничивает число одновременных запросов этого клиента к серверу и включает circuit breaker,
+     * чтобы медленные запросы одного клиента не занимали ресурсы остальных. Для GET-запросов включает
+     * повторы при ошибках соединения и, если клиент указан в hedge.clients, хеджирование.
+     */
+    @Autowired
+    public void setResilience(ResilienceProperties properties, MeterRegistry registry) {
+        Tags tags = Tags.of("client", name);
+        bulkhead = new Semaphore(properties.bulkheadFor(name));
+        bulkheadRejections = registry.counter("shareit.gateway.bulkhead.rejected", tags);
+        Gauge.builder("shareit.gateway.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tags(tags)
+                .register(registry);
+        if (properties.getCircuitBreaker().isEnabled()) {
+            circuitBreaker = new CircuitBreaker(name, properties.getCircuitBreaker(),
+                    state -> registry.counter("shareit.gateway.circuit.transitions", tags.and("state", state.name()))
+                            .increment());
+            circuitRejections = registry.counter("shareit.gateway.circuit.rejected", tags);
+            Gauge.builder("shareit.gateway.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                    .tags(tags)
+                    .description("0 - closed, 1 - open, 2 - half open")
+                    .register(registry);
+        }
+        coalesced = registry.counter("shareit.gateway.coalesced", tags);
+        resilience = properties;
+        meterRegistry = registry;
+    }
+
+    /**
+     * В реактивном режиме запросы к серверу идут через WebClient и не занимают поток Tomcat на время ответа.
+     */
+    @Autowired
+    public void setReactive(@Value("${shareit-server.reactive:false}") boolean reactive) {
+        this.reactive = reactive;
+    }
+
+    /**
+     * Включает хеджирование и повторы после setResilience и setReactive. Хеджирование работает только
+     * в реактивном режиме: там отмена проигравшего запроса закрывает соединение, а отмененный вызов
+     * RestTemplate продолжал бы занимать соединение уже после возврата места в bulkhead.
+     * В блокирующем режиме повтор выполняется на boundedElastic, а не в потоке таймера.
+     */
+    @PostConstruct
+    public void initHedgingAndRetry() {
+        if (resilience == null) {
+            return;
+        }
+        Tags tags = Tags.of("client", name);
+        ResilienceProperties.Hedge hedge = resilience.getHedge();
+        if (hedge.getClients().contains(name)) {
+            if (!reactive) {
+                log.warn("Хеджирование запросов клиента {} работает только при shareit-server.reactive=true", name);
+            } else {
+                hedgeProperties = hedge;
+                hedgeLatency = new LatencyPercentile(hedge.getWindow(), hedge.getPercentile());
+                hedgesFired = meterRegistry.counter("shareit.gateway.hedge.fired", tags);
+                hedgesWon = meterRegistry.counter("shareit.gateway.hedge.won", tags);
+                Gauge.builder("shareit.gateway.hedge.delay", this, client -> client.hedgeDelay().toMillis())
+                        .tags(tags)
+                        .baseUnit("milliseconds")
+                        .register(meterRegistry);
+            }
+        }
+        ResilienceProperties.Retry retryProperties = resilience.getRetry();
+        if (retryProperties.getMaxRetries() > 0) {
+            Counter retries = meterRegistry.counter("shareit.gateway.retries", tags);
+            retry = Retry.backoff(retryProperties.getMaxRetries(), retryProperties.getBackoff())
+                    .maxBackoff(retryProperties.getMaxBackoff())
+                    .jitter(0.5)
+                    .filter(BaseClient::isConnectionFailure)
+                    .doBeforeRetry(signal -> retries.increment())
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+            if (!reactive) {
+                retry = retry.scheduler(Schedulers.boundedElastic());
+            }
+        }
+    }
+
+    /**
+     * В режиме passthrough тело ответа сервера отдается клиенту как массив байт, без разбора JSON.
+     */
+    @Autowired
+    public void setPassthrough(@Value("${shareit-server.passthrough:true}") boolean passthrough) {
+        this.passthrough = passthrough;
+    }
+
+    /**
+     * Одновременные одинаковые GET-запросы одного пользователя, а для shared-запросов любых пользователей,
+     * выполняются одним запросом к серверу.
+     */
+    @Autowired
+    public void setCoalescing(@Value("${shareit-server.coalescing:true}") boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Запросы и ответы сервера передаются в Smile вместо JSON. Клиенты gateway по-прежнему получают JSON.
+     * Действует только без passthrough: там gateway и так разбирает тело ответа, а в passthrough
+     * перекодирование Smile в JSON стоило бы дороже, чем передача байт как есть.
+     */
+    @Autowired
+    public void setSmile(@Value("${shareit-server.smile:false}") boolean smile) {
+        this.smile = smile;
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    protected Mono<ResponseEntity<Object>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, long userId) {
+    protected Mono<ResponseEntity<Object>> get(String path, long userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
+    protected Mono<ResponseEntity<Object>> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
+        return get(path, userId, parameters, false);
+    }
+
+    /**
+     * shared - ответ сервера не зависит от X-Sharer-User-Id, поэтому одновременные одинаковые запросы
+     * разных пользователей получают ответ одного запроса к серверу. Иначе объединяются только запросы
+     * одного пользователя.
+     */
+    protected Mono<ResponseEntity<Object>> get(String path, Long userId, @Nullable Map<String, Object> parameters,
+                                               boolean shared) {
+        HttpHeaders conditions = conditionalHeaders();
+        if (!coalescing) {
+            return makeAndSendRequest(HttpMethod.GET, path, userId, conditions, parameters, null);
+        }
+        return Mono.deferContextual(context -> {
+            String key = requestKey(path, shared ? null : userId, parameters, conditions);
+            CompletableFuture<ResponseEntity<Object>> call = new CompletableFuture<>();
+            CompletableFuture<ResponseEntity<Object>> running = inFlight.putIfAbsent(key, call);
+            if (running == null) {
+                makeAndSendRequest(HttpMethod.GET, path, userId, conditions, parameters, null)
+                        .contextWrite(context)
+                        .subscribe(
+                                response -> {
+                                    inFlight.remove(key, call);
+                                    call.complete(response);
+                                },
+                                e -> {
+                                    inFlight.remove(key, call);
+                                    call.completeExceptionally(e);
+                                });
+                running = call;
+            } else if (coalesced != null) {
+                coalesced.increment();
+            }
+            return Mono.fromFuture(running);
+        });
     }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+    protected <T> Mono<ResponseEntity<Object>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> post(String path, long userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
+    protected <T> Mono<ResponseEntity<Object>> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+        return makeAndSendRequest(HttpMethod.POST, path, userId, null, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
+    protected <T> Mono<ResponseEntity<Object>> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
+        return makeAndSendRequest(HttpMethod.PUT, path, userId, null, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, T body) {
         return patch(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, long userId) {
         return patch(path, userId, null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, long userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, Map<String, Object> parameters) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, long userId, Map<String, Object> parameters) {
         return patch(path, userId, parameters, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+        return makeAndSendRequest(HttpMethod.PATCH, path, userId, null, parameters, body);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected Mono<ResponseEntity<Object>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, long userId) {
+    protected Mono<ResponseEntity<Object>> delete(String path, long userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
+    protected Mono<ResponseEntity<Object>> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
+        return makeAndSendRequest(HttpMethod.DELETE, path, userId, null, parameters, null);
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+    /**
+     * В блокирующем режиме запрос выполняется при подписке, в потоке, который подписался,
+     * с признаком выборки логов WireLogSampler потока, собравшего вызов, или контекста Reactor.
+     */
+    private <T> Mono<ResponseEntity<Object>> makeAndSendRequest(HttpMethod method, String path, Long userId,
+                                                                @Nullable HttpHeaders conditions,
+                                                                @Nullable Map<String, Object> parameters,
+                                                                @Nullable T body) {
+        HttpHeaders headers = defaultHeaders(userId);
+        if (conditions != null) {
+            headers.addAll(conditions);
+        }
+        boolean sampled = WireLogSampler.isSampled();
+        Mono<ResponseEntity<Object>> call = reactive
+                ? sendReactive(method, path, headers, parameters, body)
+                : Mono.deferContextual(context -> Mono.fromCallable(() -> WireLogSampler.callSampled(
+                        sampled || WireLogSampler.isSampled(context),
+                        () -> sendBlocking(method, path, headers, parameters, body))));
+        if (method != HttpMethod.GET) {
+            return guard(call, false);
+        }
+        Mono<ResponseEntity<Object>> attempt = hedgeLatency != null ? hedged(call) : guard(call, false);
+        return retry != null ? attempt.retryWhen(retry) : attempt;
+    }
+
+    /**
+     * Первый запрос отправляется сразу, второй - через hedgeDelay(), если к этому времени нет ответа
+     * и у клиента есть свободное место в bulkhead. Ответ второго запроса ничего не значит, если он
+     * завершился ошибкой: тогда ждем первый. Только для реактивного режима, см. initHedgingAndRetry.
+     */
+    private Mono<ResponseEntity<Object>> hedged(Mono<ResponseEntity<Object>> call) {
+        Mono<ResponseEntity<Object>> attempt = Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnNext(response -> hedgeLatency.record(System.nanoTime() - start));
+        });
+        return Mono.defer(() -> {
+            Mono<ResponseEntity<Object>> hedge = Mono.delay(hedgeDelay())
+                    .then(guard(attempt.doOnSubscribe(subscription -> hedgesFired.increment()), true))
+                    .doOnNext(response -> hedgesWon.increment())
+                    .onErrorResume(e -> Mono.empty());
+            return Flux.merge(guard(attempt, false), hedge).next();
+        });
+    }
+
+    private Duration hedgeDelay() {
+        long percentile = hedgeLatency.percentileNanos();
+        if (percentile < 0) {
+            return hedgeProperties.getInitialDelay();
+        }
+        Duration delay = Duration.ofNanos(percentile);
+        return delay.compareTo(hedgeProperties.getMinDelay()) < 0 ? hedgeProperties.getMinDelay() : delay;
+    }
+
+    /**
+     * Ошибки, при которых GET безопасно и полезно повторить: соединение не установлено или закрыто сервером
+     * до ответа. Ожидание соединения из пула означает перегрузку самого gateway, его не повторяем.
+     */
+    private static boolean isConnectionFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectionPoolTimeoutException) {
+                return false;
+            }
+            if (cause instanceof SocketException || cause instanceof ConnectTimeoutException
+                    || cause instanceof NoHttpResponseException || cause instanceof PrematureCloseException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * optional - запрос необязателен (второй запрос хеджирования): без места в bulkhead или при
+     * не замкнутой цепи он не отправляется и не считается отклоненным.
+     */
+    private Mono<ResponseEntity<Object>> guard(Mono<ResponseEntity<Object>> call, boolean optional) {
+        if (bulkhead == null) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            if (optional && circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+                return Mono.empty();
+            }
+            long permit = circuitBreaker == null ? 0 : circuitBreaker.tryAcquire(start);
+            if (permit == CircuitBreaker.REJECTED) {
+                circuitRejections.increment();
+                return Mono.just(unavailable("Сервер недоступен, повторите позже",
+                        circuitBreaker.retryAfterSeconds(start)));
+            }
+            if (!bulkhead.tryAcquire()) {
+                if (optional) {
+                    return Mono.empty();
+                }
+                bulkheadRejections.increment();
+                if (circuitBreaker != null) {
+                    circuitBreaker.onCancel(permit);
+                }
+                return Mono.just(unavailable("Слишком много одновременных запросов к серверу", 1));
+            }
+            Mono<ResponseEntity<Object>> guarded = call.doFinally(signal -> bulkhead.release());
+            if (circuitBreaker == null) {
+                return guarded;
+            }
+            return guarded
+                    .doOnNext(response -> circuitBreaker.onResult(permit, response.getStatusCode().is5xxServerError(),
+                            System.nanoTime() - start, System.nanoTime()))
+                    .doOnError(e -> circuitBreaker.onResult(permit, true, System.nanoTime() - start,
+                            System.nanoTime()))
+                    .doOnCancel(() -> circuitBreaker.onCancel(permit));
+        });
+    }
+
+    private static ResponseEntity<Object> unavailable(String message, long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ErrorResponse(message));
+    }
+
+    private <T> ResponseEntity<Object> sendBlocking(HttpMethod method, String path, HttpHeaders headers,
+                                                    @Nullable Map<String, Object> parameters, @Nullable T body) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
+        if (passthrough) {
+            return passRequest(method, path, parameters, requestEntity);
+        }
 
         ResponseEntity<Object> shareitServerResponse;
         try {
@@ -94,15 +463,128 @@ public class BaseClient {
                 shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
             }
         } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            return ResponseEntity.status(e.getStatusCode())
+                    .body(toJson(e.getResponseHeaders(), e.getResponseBodyAsByteArray()));
         }
         return prepareGatewayResponse(shareitServerResponse);
     }
 
+    private <T> ResponseEntity<Object> passRequest(HttpMethod method, String path,
+                                                   @Nullable Map<String, Object> parameters, HttpEntity<T> requestEntity) {
+        ResponseEntity<byte[]> shareitServerResponse;
+        try {
+            if (parameters != null) {
+                shareitServerResponse = rest.exchange(path, method, requestEntity, byte[].class, parameters);
+            } else {
+                shareitServerResponse = rest.exchange(path, method, requestEntity, byte[].class);
+            }
+        } catch (HttpStatusCodeException e) {
+            return passResponse(e.getStatusCode(), e.getResponseHeaders(), e.getResponseBodyAsByteArray());
+        }
+        return passResponse(shareitServerResponse);
+    }
+
+    private <T> Mono<ResponseEntity<Object>> sendReactive(HttpMethod method, String path, HttpHeaders headers,
+                                                          @Nullable Map<String, Object> parameters, @Nullable T body) {
+        WebClient.RequestBodySpec request = parameters != null
+                ? web.method(method).uri(path, parameters)
+                : web.method(method).uri(path);
+        request.headers(requestHeaders -> requestHeaders.addAll(headers));
+        WebClient.RequestHeadersSpec<?> spec = body != null ? request.bodyValue(body) : request;
+        return spec.exchangeToMono(this::readResponse);
+    }
+
+    private Mono<ResponseEntity<Object>> readResponse(ClientResponse response) {
+        if (passthrough) {
+            return response.toEntity(byte[].class).map(BaseClient::passResponse);
+        }
+        if (response.statusCode().is2xxSuccessful()) {
+            return response.toEntity(Object.class).map(BaseClient::prepareGatewayResponse);
+        }
+        return response.bodyToMono(byte[].class)
+                .map(bytes -> ResponseEntity.status(response.statusCode())
+                        .<Object>body(toJson(response.headers().asHttpHeaders(), bytes)))
+                .defaultIfEmpty(ResponseEntity.status(response.statusCode())
+                        .headers(endToEndHeaders(response.headers().asHttpHeaders()))
+                        .build());
+    }
+
+    private static ResponseEntity<Object> passResponse(ResponseEntity<byte[]> shareitServerResponse) {
+        return passResponse(shareitServerResponse.getStatusCode(), shareitServerResponse.getHeaders(),
+                shareitServerResponse.getBody());
+    }
+
+    private static ResponseEntity<Object> passResponse(HttpStatus status, @Nullable HttpHeaders serverHeaders,
+                                                       @Nullable byte[] body) {
+        HttpHeaders headers = endToEndHeaders(serverHeaders);
+        if (body != null && isSmile(headers)) {
+            body = SmileTranscoder.toJson(body);
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+
+    private static byte[] toJson(@Nullable HttpHeaders serverHeaders, byte[] body) {
+        return serverHeaders != null && isSmile(serverHeaders) ? SmileTranscoder.toJson(body) : body;
+    }
+
+    private static boolean isSmile(HttpHeaders headers) {
+        return SMILE.isCompatibleWith(headers.getContentType());
+    }
+
+    private static HttpHeaders endToEndHeaders(@Nullable HttpHeaders serverHeaders) {
+        HttpHeaders headers = new HttpHeaders();
+        if (serverHeaders != null) {
+            serverHeaders.forEach((name, values) -> {
+                if (HOP_BY_HOP_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                    headers.addAll(name, values);
+                }
+            });
+        }
+        return headers;
+    }
+
+    private static String requestKey(String path, Long userId, @Nullable Map<String, Object> parameters,
+                                     @Nullable HttpHeaders conditions) {
+        String key = path + '|' + userId;
+        if (parameters != null) {
+            key += '|' + new TreeMap<>(parameters).toString();
+        }
+        return conditions == null ? key : key + '|' + conditions;
+    }
+
+    /**
+     * Условные заголовки запроса клиента gateway. Вне потока запроса, например в /batch, их нет.
+     */
+    @Nullable
+    private static HttpHeaders conditionalHeaders() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        HttpHeaders conditions = null;
+        for (String name : CONDITIONAL_HEADERS) {
+            Enumeration<String> values = request.getHeaders(name);
+            while (values.hasMoreElements()) {
+                if (conditions == null) {
+                    conditions = new HttpHeaders();
+                }
+                conditions.add(name, values.nextElement());
+            }
+        }
+        return conditions;
+    }
+
     private HttpHeaders defaultHeaders(Long userId) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        if (smile && !passthrough) {
+            headers.setContentType(SMILE);
+            headers.setAccept(SMILE_ACCEPT);
+        } else {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        }
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
@@ -111,10 +593,17 @@ public class BaseClient {
 
     private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
+            if (!isSmile(response.getHeaders())) {
+                return response;
+            }
+            // тело уже разобрано, клиенту gateway оно будет записано в JSON
+            HttpHeaders headers = endToEndHeaders(response.getHeaders());
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            return ResponseEntity.status(response.getStatusCode()).headers(headers).body(response.getBody());
         }
 
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode())
+                .headers(endToEndHeaders(response.getHeaders()));
 
         if (response.hasBody()) {
             return responseBuilder.body(response.getBody());
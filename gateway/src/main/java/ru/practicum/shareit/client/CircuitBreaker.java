@@ -0,0 +1,145 @@
+package ru.practicum.shareit.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker по окну последних вызовов. Ошибкой считаются 5xx, исключения и медленные ответы.
+ * CLOSED -> OPEN при доле ошибок не ниже порога, OPEN -> HALF_OPEN по истечении openDuration,
+ * HALF_OPEN -> CLOSED после halfOpenCalls успешных пробных вызовов или снова OPEN при первой ошибке.
+ * Каждый переход начинает новое поколение, tryAcquire выдает разрешение с номером поколения, и результаты
+ * вызовов, начатых в прошлых поколениях, не учитываются: медленный вызов, начатый в CLOSED, не засчитывается
+ * пробным в HALF_OPEN.
+ */
+@Slf4j
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * tryAcquire: вызов не разрешен.
+     */
+    public static final long REJECTED = -1;
+
+    private final String name;
+
+    private final ResilienceProperties.CircuitBreaker properties;
+
+    private final long openNanos;
+
+    private final long slowCallNanos;
+
+    private final Consumer<State> onTransition;
+
+    private final boolean[] window;
+
+    private int windowIndex;
+
+    private int windowCount;
+
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int probes;
+
+    private int probeSuccesses;
+
+    private long generation;
+
+    public CircuitBreaker(String name, ResilienceProperties.CircuitBreaker properties, Consumer<State> onTransition) {
+        this.name = name;
+        this.properties = properties;
+        this.openNanos = properties.getOpenDuration().toNanos();
+        this.slowCallNanos = properties.getSlowCallThreshold().toNanos();
+        this.onTransition = onTransition;
+        this.window = new boolean[properties.getWindowSize()];
+    }
+
+    /**
+     * Разрешение на вызов, которое передается в onResult или onCancel, или REJECTED.
+     */
+    public synchronized long tryAcquire(long now) {
+        if (state == State.OPEN) {
+            if (now - openedAt < openNanos) {
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN, now);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probes >= properties.getHalfOpenCalls()) {
+                return REJECTED;
+            }
+            probes++;
+        }
+        return generation;
+    }
+
+    public synchronized void onResult(long permit, boolean failed, long durationNanos, long now) {
+        if (permit != generation) {
+            return;
+        }
+        boolean failure = failed || durationNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (failure) {
+                transition(State.OPEN, now);
+            } else if (++probeSuccesses >= properties.getHalfOpenCalls()) {
+                transition(State.CLOSED, now);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (windowCount == window.length) {
+            windowFailures -= window[windowIndex] ? 1 : 0;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        windowFailures += failure ? 1 : 0;
+        windowIndex = (windowIndex + 1) % window.length;
+        if (windowCount >= properties.getMinimumCalls()
+                && windowFailures * 100 >= properties.getFailureRateThreshold() * windowCount) {
+            transition(State.OPEN, now);
+        }
+    }
+
+    /**
+     * Вызов отменен клиентом, результат неизвестен.
+     */
+    public synchronized void onCancel(long permit) {
+        if (permit == generation && state == State.HALF_OPEN && probes > probeSuccesses) {
+            probes--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Через сколько секунд цепь перейдет в полуоткрытое состояние.
+     */
+    public synchronized long retryAfterSeconds(long now) {
+        long remaining = state == State.OPEN ? openNanos - (now - openedAt) : 0;
+        return Math.max(1, (remaining + 999_999_999L) / 1_000_000_000L);
+    }
+
+    private void transition(State next, long now) {
+        log.warn("Circuit breaker {}: {} -> {}", name, state, next);
+        state = next;
+        generation++;
+        openedAt = now;
+        probes = 0;
+        probeSuccesses = 0;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        onTransition.accept(next);
+    }
+}
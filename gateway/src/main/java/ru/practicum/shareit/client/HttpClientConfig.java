@@ -0,0 +1,168 @@
+package ru.practicum.shareit.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ChannelOption;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Один пул соединений к shareit-server на все клиенты gateway.
+ */
+@Configuration
+@EnableConfigurationProperties({HttpClientProperties.class, ResilienceProperties.class})
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager shareitServerConnectionManager(HttpClientProperties properties) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(
+                properties.getTimeToLive().toMillis(), TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(properties.getMaxTotal());
+        manager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        manager.setValidateAfterInactivity((int) properties.getValidateAfterInactivity().toMillis());
+        return manager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient shareitServerHttpClient(PoolingHttpClientConnectionManager manager,
+                                                      HttpClientProperties properties) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) properties.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) properties.getConnectionRequestTimeout().toMillis())
+                .build();
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(properties.getKeepAlive().toMillis()))
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getIdleEviction().toMillis(), TimeUnit.MILLISECONDS);
+        // со сжатием клиент сам отправляет Accept-Encoding и распаковывает ответ, убирая Content-Encoding
+        if (!properties.isCompression()) {
+            builder.disableContentCompression();
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public ClientHttpRequestFactory shareitServerRequestFactory(CloseableHttpClient httpClient) {
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    @Bean
+    public MeterBinder shareitServerPoolMetrics(PoolingHttpClientConnectionManager manager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(manager, "shareit-server");
+    }
+
+    /**
+     * Пул соединений WebClient для реактивного режима, с теми же лимитами и таймаутами.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider shareitServerConnectionProvider(HttpClientProperties properties) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("shareit-server")
+                .maxConnections(properties.getMaxTotal())
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(properties.getConnectionRequestTimeout())
+                .maxIdleTime(properties.getKeepAlive())
+                .evictInBackground(properties.getIdleEviction())
+                .metrics(true);
+        if (!properties.getTimeToLive().isZero()) {
+            builder.maxLifeTime(properties.getTimeToLive());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Запросы RestTemplate клиентов к LoadBalancer.BASE_URL уходят на выбранный экземпляр сервера.
+     */
+    @Bean
+    public RestTemplateCustomizer shareitServerLoadBalancing(LoadBalancer loadBalancer) {
+        return restTemplate -> restTemplate.getInterceptors().add(loadBalancer);
+    }
+
+    @Bean
+    public WebClient shareitServerWebClient(WebClient.Builder builder, ConnectionProvider provider,
+                                            HttpClientProperties properties, LoadBalancer loadBalancer) {
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getReadTimeout())
+                .compress(properties.isCompression());
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(loadBalancer)
+                .build();
+    }
+
+    /**
+     * Smile для запросов к серверу через RestTemplate, с настройками spring.jackson.*, как у JSON.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileObjectMapper(builder));
+    }
+
+    /**
+     * То же для WebClient: кодеки Smile по умолчанию не учитывают настройки spring.jackson.*.
+     */
+    @Bean
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = smileObjectMapper(builder);
+        // без явного типа кодеки с собственным ObjectMapper поддерживают только application/json
+        MimeType smile = new MimeType("application", "x-jackson-smile");
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(mapper, smile));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(mapper, smile));
+        };
+    }
+
+    private static ObjectMapper smileObjectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory()).build();
+    }
+
+    /**
+     * Берет timeout из заголовка Keep-Alive сервера, иначе держит соединение не дольше keepAliveMillis.
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+        return (response, context) -> {
+            HeaderElementIterator iterator = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (iterator.hasNext()) {
+                HeaderElement element = iterator.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(Long.parseLong(element.getValue()) * 1000, keepAliveMillis);
+                    } catch (NumberFormatException ignored) {
+                        // некорректный заголовок - используем значение по умолчанию
+                    }
+                }
+            }
+            return keepAliveMillis;
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.client;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки общего пула соединений gateway -> server.
+ */
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "shareit-server.http")
+public class HttpClientProperties {
+    int maxTotal = 200;
+
+    int maxPerRoute = 100;
+
+    Duration connectTimeout = Duration.ofSeconds(2);
+
+    Duration readTimeout = Duration.ofSeconds(10);
+
+    Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    Duration keepAlive = Duration.ofSeconds(30);
+
+    /**
+     * Предельный срок жизни соединения, после которого оно закрывается при возврате в пул, даже если занято
+     * постоянно. 0 - не ограничено: простаивающие соединения закрываются по keepAlive и idleEviction.
+     */
+    Duration timeToLive = Duration.ZERO;
+
+    Duration idleEviction = Duration.ofSeconds(30);
+
+    Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    /**
+     * Просить у сервера ответы в gzip (Accept-Encoding) и распаковывать их до разбора тела.
+     */
+    boolean compression = true;
+}
@@ -0,0 +1,54 @@
+package ru.practicum.shareit.client;
+
+import java.util.Arrays;
+
+/**
+ * Перцентиль времени ответа по последним window замерам. Сортировка копии окна делается не на каждый замер,
+ * а раз в window / 8 замеров, между пересчетами percentileNanos() читает готовое значение.
+ */
+class LatencyPercentile {
+    private final long[] samples;
+
+    private final double percentile;
+
+    private final int recomputeEvery;
+
+    private int index;
+
+    private int count;
+
+    private int sinceRecompute;
+
+    private volatile long value = -1;
+
+    LatencyPercentile(int window, double percentile) {
+        if (window <= 0 || percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Некорректные параметры перцентиля времени ответа");
+        }
+        this.samples = new long[window];
+        this.percentile = percentile;
+        this.recomputeEvery = Math.max(1, window / 8);
+    }
+
+    synchronized void record(long nanos) {
+        samples[index] = nanos;
+        index = (index + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRecompute >= recomputeEvery) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+            value = sorted[Math.max(0, Math.min(rank, count - 1))];
+        }
+    }
+
+    /**
+     * -1, пока замеров меньше, чем нужно для первого пересчета.
+     */
+    long percentileNanos() {
+        return value;
+    }
+}
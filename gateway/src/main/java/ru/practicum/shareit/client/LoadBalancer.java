@@ -0,0 +1,340 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Распределяет запросы клиентов gateway по экземплярам сервера из shareit-server.url (через запятую).
+ * Клиенты обращаются к BASE_URL, перехватчик RestTemplate и фильтр WebClient подставляют выбранный экземпляр.
+ * Экземпляр исключается после unhealthyThreshold неудачных проверок подряд или сразу при ошибке соединения
+ * и возвращается после healthyThreshold удачных проверок. Если исключены все, запросы идут на все экземпляры.
+ * Привязки запросов предмета к экземпляру нет, поэтому экземпляры с общей базой запускаются с профилем cluster:
+ * в нем выключены индексы в памяти процесса, а схема не пересоздается.
+ */
+@Component
+@EnableConfigurationProperties(LoadBalancerProperties.class)
+@Slf4j
+public class LoadBalancer implements ClientHttpRequestInterceptor, ExchangeFilterFunction {
+    public static final String BASE_URL = "http://shareit-server";
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    private final Instance[] instances;
+
+    private final LoadBalancerProperties.Strategy strategy;
+
+    /**
+     * Кольцо хеширования: точки экземпляров, по virtualNodes на экземпляр.
+     */
+    private final NavigableMap<Long, Instance> ring = new TreeMap<>();
+
+    /**
+     * Отдельный маленький пул для проверок: при исчерпанном общем пуле запросов проверки не должны
+     * ждать соединения и исключать здоровые экземпляры.
+     */
+    private final CloseableHttpClient probeClient;
+
+    private final String healthPath;
+
+    private final int unhealthyThreshold;
+
+    private final int healthyThreshold;
+
+    private final ScheduledExecutorService checker;
+
+    public LoadBalancer(@Value("${shareit-server.url}") List<String> urls, LoadBalancerProperties properties,
+                        MeterRegistry registry) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("Не задан ни один экземпляр сервера в shareit-server.url");
+        }
+        this.instances = urls.stream()
+                .map(String::trim)
+                .map(url -> new Instance(url, registry))
+                .toArray(Instance[]::new);
+        this.strategy = properties.getStrategy();
+        int timeout = (int) properties.getHealthTimeout().toMillis();
+        PoolingHttpClientConnectionManager probeConnections = new PoolingHttpClientConnectionManager();
+        probeConnections.setMaxTotal(instances.length);
+        probeConnections.setDefaultMaxPerRoute(1);
+        this.probeClient = HttpClients.custom()
+                .setConnectionManager(probeConnections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(timeout)
+                        .setSocketTimeout(timeout)
+                        .setConnectionRequestTimeout(timeout)
+                        .build())
+                .disableAutomaticRetries()
+                .disableContentCompression()
+                .build();
+        this.healthPath = properties.getHealthPath();
+        this.unhealthyThreshold = properties.getUnhealthyThreshold();
+        this.healthyThreshold = properties.getHealthyThreshold();
+
+        for (Instance instance : instances) {
+            for (int i = 0; i < properties.getVirtualNodes(); i++) {
+                ring.put(mix(instance.url.hashCode() * 31L + i), instance);
+            }
+        }
+
+        this.checker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "shareit-server-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getHealthInterval().toMillis();
+        checker.scheduleWithFixedDelay(this::checkAll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Instance instance = choose(request.getHeaders().getFirst(USER_HEADER));
+        URI uri = instance.resolve(request.getURI());
+        instance.outstanding.incrementAndGet();
+        try {
+            return execution.execute(new HttpRequestWrapper(request) {
+                @Override
+                public URI getURI() {
+                    return uri;
+                }
+            }, body);
+        } catch (IOException e) {
+            onFailure(instance, e);
+            throw e;
+        } finally {
+            instance.outstanding.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            Instance instance = choose(request.headers().getFirst(USER_HEADER));
+            instance.outstanding.incrementAndGet();
+            ClientRequest routed = ClientRequest.from(request).url(instance.resolve(request.url())).build();
+            return next.exchange(routed)
+                    .doOnError(e -> onFailure(instance, e))
+                    .doFinally(signal -> instance.outstanding.decrementAndGet());
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        checker.shutdownNow();
+        probeClient.close();
+    }
+
+    private Instance choose(@Nullable String user) {
+        if (instances.length == 1) {
+            return instances[0];
+        }
+        if (strategy == LoadBalancerProperties.Strategy.USER_HASH && user != null) {
+            Instance owner = ringOwner(mix(user.hashCode()));
+            if (owner != null) {
+                return owner;
+            }
+        }
+        return leastOutstanding();
+    }
+
+    /**
+     * Первый здоровый экземпляр по часовой стрелке от точки пользователя. Исключение экземпляра
+     * переносит на другие только его пользователей.
+     */
+    @Nullable
+    private Instance ringOwner(long hash) {
+        for (Instance owner : ring.tailMap(hash, true).values()) {
+            if (owner.healthy.get()) {
+                return owner;
+            }
+        }
+        for (Instance owner : ring.headMap(hash, false).values()) {
+            if (owner.healthy.get()) {
+                return owner;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Обход со случайного экземпляра, чтобы при равенстве нагрузка не шла всегда на первый.
+     */
+    private Instance leastOutstanding() {
+        int start = ThreadLocalRandom.current().nextInt(instances.length);
+        Instance best = null;
+        Instance bestAny = null;
+        for (int i = 0; i < instances.length; i++) {
+            Instance instance = instances[(start + i) % instances.length];
+            int outstanding = instance.outstanding.get();
+            if (bestAny == null || outstanding < bestAny.outstanding.get()) {
+                bestAny = instance;
+            }
+            if (instance.healthy.get() && (best == null || outstanding < best.outstanding.get())) {
+                best = instance;
+            }
+        }
+        return best != null ? best : bestAny;
+    }
+
+    private void onFailure(Instance instance, Throwable e) {
+        if (isConnectFailure(e)) {
+            instance.eject("ошибка соединения: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Экземпляр не принял соединение. Таймаут ожидания соединения из пула говорит о нагрузке на gateway,
+     * а не об экземпляре.
+     */
+    private static boolean isConnectFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectionPoolTimeoutException) {
+                return false;
+            }
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkAll() {
+        for (Instance instance : instances) {
+            try {
+                check(instance);
+            } catch (RuntimeException e) {
+                log.warn("Ошибка проверки экземпляра сервера {}", instance.url, e);
+            }
+        }
+    }
+
+    private void check(Instance instance) {
+        boolean ok;
+        HttpGet request = new HttpGet(instance.url + healthPath);
+        try (CloseableHttpResponse response = probeClient.execute(request)) {
+            ok = response.getStatusLine().getStatusCode() / 100 == 2;
+            EntityUtils.consume(response.getEntity());
+        } catch (IOException e) {
+            ok = false;
+        }
+        if (instance.healthy.get()) {
+            instance.successes = 0;
+            instance.failures = ok ? 0 : instance.failures + 1;
+            if (instance.failures >= unhealthyThreshold) {
+                instance.eject("не прошел проверок подряд: " + instance.failures);
+            }
+        } else {
+            instance.failures = 0;
+            instance.successes = ok ? instance.successes + 1 : 0;
+            if (instance.successes >= healthyThreshold) {
+                instance.recover();
+            }
+        }
+    }
+
+    /**
+     * 64-битное перемешивание из MurmurHash3, чтобы близкие id пользователей расходились по кольцу.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Instance {
+        private final String url;
+
+        private final AtomicBoolean healthy = new AtomicBoolean(true);
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final Counter ejections;
+
+        private final Counter recoveries;
+
+        /**
+         * Счетчики проверок подряд, меняются только потоком проверок.
+         */
+        private int failures;
+
+        private int successes;
+
+        private Instance(String url, MeterRegistry registry) {
+            this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+            Tags tags = Tags.of("instance", this.url);
+            this.ejections = registry.counter("shareit.gateway.instance.ejections", tags);
+            this.recoveries = registry.counter("shareit.gateway.instance.recoveries", tags);
+            Gauge.builder("shareit.gateway.instance.healthy", healthy, value -> value.get() ? 1 : 0)
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("shareit.gateway.instance.outstanding", outstanding, AtomicInteger::get)
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        /**
+         * Адрес экземпляра с путем и параметрами запроса к BASE_URL.
+         */
+        private URI resolve(URI uri) {
+            String query = uri.getRawQuery();
+            return URI.create(url + uri.getRawPath() + (query != null ? "?" + query : ""));
+        }
+
+        private void eject(String reason) {
+            if (healthy.compareAndSet(true, false)) {
+                ejections.increment();
+                log.warn("Экземпляр сервера {} исключен, {}", url, reason);
+            }
+        }
+
+        private void recover() {
+            if (healthy.compareAndSet(false, true)) {
+                recoveries.increment();
+                log.warn("Экземпляр сервера {} снова принимает запросы", url);
+            }
+        }
+    }
+}
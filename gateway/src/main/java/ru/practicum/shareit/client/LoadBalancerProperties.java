@@ -0,0 +1,55 @@
+package ru.practicum.shareit.client;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Выбор экземпляра сервера из shareit-server.url и проверки их здоровья.
+ */
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "shareit-server.balancer")
+public class LoadBalancerProperties {
+    public enum Strategy {
+        /**
+         * Экземпляр с наименьшим числом запросов, на которые еще нет ответа.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * Консистентное хеширование по X-Sharer-User-Id: запросы пользователя идут на один экземпляр,
+         * пока он здоров. Запросы без пользователя - как LEAST_OUTSTANDING.
+         */
+        USER_HASH
+    }
+
+    Strategy strategy = Strategy.LEAST_OUTSTANDING;
+
+    /**
+     * Точек экземпляра на кольце хеширования, чем больше, тем ровнее пользователи делятся между экземплярами.
+     */
+    int virtualNodes = 100;
+
+    /**
+     * GET на этот путь экземпляра должен вернуть 2xx.
+     */
+    String healthPath = "/actuator/health";
+
+    Duration healthInterval = Duration.ofSeconds(2);
+
+    Duration healthTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Неудачных проверок подряд, после которых экземпляр исключается. Ошибка соединения
+     * в обычном запросе исключает экземпляр сразу.
+     */
+    int unhealthyThreshold = 2;
+
+    /**
+     * Удачных проверок подряд, после которых исключенный экземпляр возвращается.
+     */
+    int healthyThreshold = 2;
+}
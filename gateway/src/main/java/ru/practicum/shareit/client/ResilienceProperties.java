@@ -0,0 +1,113 @@
+package ru.practicum.shareit.client;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ограничение одновременных запросов к серверу по клиентам, параметры circuit breaker,
+ * хеджирования и повторов GET-запросов.
+ */
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "shareit-server.resilience")
+public class ResilienceProperties {
+    /**
+     * Одновременных запросов на клиента (bookings, items, users, requests), если не задано в bulkhead.
+     */
+    int defaultBulkhead = 50;
+
+    Map<String, Integer> bulkhead = new HashMap<>();
+
+    CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    Hedge hedge = new Hedge();
+
+    Retry retry = new Retry();
+
+    public int bulkheadFor(String client) {
+        return bulkhead.getOrDefault(client, defaultBulkhead);
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class CircuitBreaker {
+        boolean enabled = true;
+
+        /**
+         * Сколько последних вызовов учитывается.
+         */
+        int windowSize = 20;
+
+        int minimumCalls = 10;
+
+        /**
+         * Процент ошибок и медленных вызовов, при котором цепь размыкается.
+         */
+        int failureRateThreshold = 50;
+
+        Duration slowCallThreshold = Duration.ofSeconds(3);
+
+        Duration openDuration = Duration.ofSeconds(10);
+
+        /**
+         * Пробных вызовов в полуоткрытом состоянии.
+         */
+        int halfOpenCalls = 3;
+    }
+
+    /**
+     * Если ответа на GET нет дольше заданного перцентиля времени ответа, отправляется второй такой же запрос,
+     * используется первый пришедший ответ, второй запрос отменяется.
+     */
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Hedge {
+        /**
+         * Клиенты (bookings, items, users, requests), для GET-запросов которых включено хеджирование.
+         * Действует только при shareit-server.reactive=true.
+         */
+        Set<String> clients = new HashSet<>();
+
+        double percentile = 95;
+
+        /**
+         * По скольким последним ответам считается перцентиль.
+         */
+        int window = 1000;
+
+        /**
+         * Задержка второго запроса, пока ответов для перцентиля недостаточно.
+         */
+        Duration initialDelay = Duration.ofMillis(100);
+
+        Duration minDelay = Duration.ofMillis(10);
+    }
+
+    /**
+     * Повторы GET-запросов при ошибках соединения: отказ в соединении, таймаут соединения, разрыв до ответа.
+     * Таймауты чтения не повторяются, медленные ответы - задача хеджирования.
+     */
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Retry {
+        /**
+         * Повторов сверх первой попытки, 0 - без повторов.
+         */
+        int maxRetries = 2;
+
+        /**
+         * Пауза перед первым повтором, дальше удваивается до maxBackoff, со случайным разбросом в половину паузы.
+         */
+        Duration backoff = Duration.ofMillis(50);
+
+        Duration maxBackoff = Duration.ofMillis(500);
+    }
+}
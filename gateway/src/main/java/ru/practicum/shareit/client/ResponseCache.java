@@ -0,0 +1,153 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * LRU-кэш успешных ответов сервера на чтение отдельных ресурсов (items/1, users/1, requests/1).
+ * Ответ хранится отдельно для каждого X-Sharer-User-Id, если ресурс зависит от пользователя.
+ * Записи удаляются по TTL, по размеру и при изменении ресурса через gateway.
+ */
+@Component
+public class ResponseCache {
+    private static final char USER_SEPARATOR = '|';
+
+    private final boolean enabled;
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final NavigableMap<String, Set<String>> keysByResource = new TreeMap<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    /**
+     * Увеличивается при каждой инвалидации. Ответ, полученный с сервера во время инвалидации, не кэшируется.
+     */
+    private long version;
+
+    @Autowired
+    public ResponseCache(@Value("${shareit.cache.enabled:true}") boolean enabled,
+                         @Value("${shareit.cache.max-size:10000}") int maxSize,
+                         @Value("${shareit.cache.ttl:30s}") Duration ttl,
+                         MeterRegistry registry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = registry.counter("shareit.gateway.cache.requests", "result", "hit");
+        this.misses = registry.counter("shareit.gateway.cache.requests", "result", "miss");
+        this.evictions = registry.counter("shareit.gateway.cache.evictions");
+        Gauge.builder("shareit.gateway.cache.size", this, ResponseCache::size).register(registry);
+    }
+
+    public Mono<ResponseEntity<Object>> get(String resource, @Nullable Long userId,
+                                           Supplier<Mono<ResponseEntity<Object>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.defer(() -> {
+            String key = userId == null ? resource : resource + USER_SEPARATOR + userId;
+            long loadVersion;
+            synchronized (this) {
+                Entry entry = entries.get(key);
+                if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                    hits.increment();
+                    return Mono.just(entry.response);
+                }
+                if (entry != null) {
+                    remove(key);
+                }
+                loadVersion = version;
+            }
+            misses.increment();
+            return loader.get().doOnNext(response -> {
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    put(resource, key, response, loadVersion);
+                }
+            });
+        });
+    }
+
+    public synchronized void invalidate(String resource) {
+        version++;
+        Set<String> keys = keysByResource.remove(resource);
+        if (keys != null) {
+            keys.forEach(entries::remove);
+        }
+    }
+
+    /**
+     * Удаляет все ресурсы одного вида, например "items/".
+     */
+    public synchronized void invalidatePrefix(String prefix) {
+        version++;
+        SortedMap<String, Set<String>> resources = keysByResource.subMap(prefix, prefix + Character.MAX_VALUE);
+        resources.values().forEach(keys -> keys.forEach(entries::remove));
+        resources.clear();
+    }
+
+    public synchronized void invalidateAll() {
+        version++;
+        entries.clear();
+        keysByResource.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void put(String resource, String key, ResponseEntity<Object> response, long loadVersion) {
+        if (loadVersion != version) {
+            return;
+        }
+        entries.put(key, new Entry(resource, response, System.nanoTime() + ttlNanos));
+        keysByResource.computeIfAbsent(resource, r -> new HashSet<>()).add(key);
+        if (entries.size() > maxSize) {
+            remove(entries.keySet().iterator().next());
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        Set<String> keys = keysByResource.get(entry.resource);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByResource.remove(entry.resource);
+        }
+    }
+
+    private static final class Entry {
+        private final String resource;
+
+        private final ResponseEntity<Object> response;
+
+        private final long expiresAt;
+
+        private Entry(String resource, ResponseEntity<Object> response, long expiresAt) {
+            this.resource = resource;
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
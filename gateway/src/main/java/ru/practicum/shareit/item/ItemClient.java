@@ -2,16 +2,20 @@ package ru.practicum.shareit.item;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.LoadBalancer;
+import ru.practicum.shareit.client.ResponseCache;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @Service
@@ -19,43 +23,81 @@ import java.util.Map;
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
+    private final ResponseCache responseCache;
+
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(RestTemplateBuilder builder, ClientHttpRequestFactory requestFactory, WebClient webClient,
+                      ResponseCache responseCache) {
         super(
+                "items",
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .uriTemplateHandler(new DefaultUriBuilderFactory(LoadBalancer.BASE_URL + API_PREFIX))
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                webClient.mutate()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(LoadBalancer.BASE_URL + API_PREFIX))
                         .build()
         );
+        this.responseCache = responseCache;
     }
 
-    public ResponseEntity<Object> postItem(long userId, ItemDto itemDto) {
-        return post("", userId, itemDto);
+    public Mono<ResponseEntity<Object>> postItem(long userId, ItemDto itemDto) {
+        return post("", userId, itemDto).doOnNext(response -> {
+            if (itemDto.getRequestId() != null) {
+                responseCache.invalidate("requests/" + itemDto.getRequestId());
+            }
+        });
     }
 
-    public ResponseEntity<Object> patchItem(long userId, ItemDto itemDto, long itemId) {
-        return patch("/" + itemId, userId, itemDto);
+    public Mono<ResponseEntity<Object>> patchItem(long userId, ItemDto itemDto, long itemId) {
+        return patch("/" + itemId, userId, itemDto).doOnNext(response -> {
+            responseCache.invalidate("items/" + itemId);
+            // предмет входит в ответ по запросу, а id запроса gateway не знает
+            responseCache.invalidatePrefix("requests/");
+        });
     }
 
-    public ResponseEntity<Object> getItemById(long userId, long itemId) {
-        return get("/" + itemId, userId);
+    public Mono<ResponseEntity<Object>> getItemById(long userId, long itemId) {
+        return responseCache.get("items/" + itemId, userId, () -> get("/" + itemId, userId));
     }
 
-    public ResponseEntity<Object> getItemsBySearch(long userId, String text, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getItemsBySearch(long userId, String text, Integer from, Integer size) {
         Map<String, Object> params = Map.of(
                 "text", text,
                 "from", from,
                 "size", size
         );
-        log.info("GET /items/search?text={}&from={}&size={}", text, from, size);
-        return get("/search?text={text}&from={from}&size={size}", userId, params);
+        log.debug("GET /items/search?text={}&from={}&size={}", text, from, size);
+        return get("/search?text={text}&from={from}&size={size}", userId, params, true);
+    }
+
+    public Mono<ResponseEntity<Object>> getFreeItemsBySearch(long userId, String text, LocalDateTime start,
+                                                             LocalDateTime end, Integer from, Integer size) {
+        Map<String, Object> params = Map.of(
+                "text", text,
+                "start", start,
+                "end", end,
+                "from", from,
+                "size", size
+        );
+        return get("/search/free?text={text}&start={start}&end={end}&from={from}&size={size}", userId, params,
+                true);
+    }
+
+    public Mono<ResponseEntity<Object>> getFreeSlots(long userId, long itemId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> params = Map.of(
+                "from", from,
+                "to", to
+        );
+        return get("/" + itemId + "/availability?from={from}&to={to}", userId, params);
     }
 
-    public ResponseEntity<Object> getItems(long userId) {
+    public Mono<ResponseEntity<Object>> getItems(long userId) {
         return get("", userId);
     }
 
-    public ResponseEntity<Object> postComment(long userId, long itemId, CommentDto commentDto) {
-        return post("/" + itemId + "/comment", userId, commentDto);
+    public Mono<ResponseEntity<Object>> postComment(long userId, long itemId, CommentDto commentDto) {
+        return post("/" + itemId + "/comment", userId, commentDto)
+                .doOnNext(response -> responseCache.invalidate("items/" + itemId));
     }
 }
@@ -2,10 +2,12 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.Create;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -13,6 +15,7 @@ import ru.practicum.shareit.item.dto.ItemDto;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.time.LocalDateTime;
 
 @Controller
 @RequestMapping(path = "/items")
@@ -24,42 +27,61 @@ public class ItemController {
     private final ItemClient itemClient;
 
     @PostMapping
-    public ResponseEntity<Object> postItem(@RequestHeader("X-Sharer-User-Id") Long id,
-                                           @RequestBody @Validated(Create.class) ItemDto item) {
+    public Mono<ResponseEntity<Object>> postItem(@RequestHeader("X-Sharer-User-Id") Long id,
+                                                 @RequestBody @Validated(Create.class) ItemDto item) {
         return itemClient.postItem(id, item);
     }
 
     @PatchMapping("/{itemId}")
-    public ResponseEntity<Object> patchItem(@PathVariable Long itemId,
-                                            @RequestHeader("X-Sharer-User-Id") Long ownerId,
-                                            @RequestBody ItemDto item) {
+    public Mono<ResponseEntity<Object>> patchItem(@PathVariable Long itemId,
+                                                  @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                  @RequestBody ItemDto item) {
         return itemClient.patchItem(ownerId, item, itemId);
     }
 
     @GetMapping("/{itemId}")
-    public ResponseEntity<Object> getItemById(@Positive @PathVariable Long itemId,
-                                              @RequestHeader("X-Sharer-User-Id") Long requesterId) {
+    public Mono<ResponseEntity<Object>> getItemById(@Positive @PathVariable Long itemId,
+                                                    @RequestHeader("X-Sharer-User-Id") Long requesterId) {
         return itemClient.getItemById(requesterId, itemId);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Object> searchItem(@RequestParam(name = "text") String text,
-                                             @RequestHeader("X-Sharer-User-Id") Long ownerId,
-                                             @PositiveOrZero @RequestParam(value = "from",defaultValue = "0") Integer from,
-                                             @Positive @RequestParam(value = "size", defaultValue = "20") Integer size) {
-        log.info("Получили запрос search с параметрами from:{}, size:{}, text:{}", from, size, text);
+    public Mono<ResponseEntity<Object>> searchItem(@RequestParam(name = "text") String text,
+                                                   @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                   @PositiveOrZero @RequestParam(value = "from",defaultValue = "0") Integer from,
+                                                   @Positive @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        log.debug("Получили запрос search с параметрами from:{}, size:{}, text:{}", from, size, text);
         return itemClient.getItemsBySearch(ownerId, text, from, size);
     }
 
+    @GetMapping("/search/free")
+    public Mono<ResponseEntity<Object>> searchFreeItems(@RequestParam(name = "text") String text,
+                                                        @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                                        @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
+                                                        @Positive @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        log.debug("Получили запрос search/free с параметрами text:{}, start:{}, end:{}", text, start, end);
+        return itemClient.getFreeItemsBySearch(ownerId, text, start, end, from, size);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public Mono<ResponseEntity<Object>> getFreeSlots(@Positive @PathVariable Long itemId,
+                                                     @RequestHeader("X-Sharer-User-Id") Long requesterId,
+                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return itemClient.getFreeSlots(requesterId, itemId, from, to);
+    }
+
     @GetMapping
-    public ResponseEntity<Object> getItems(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+    public Mono<ResponseEntity<Object>> getItems(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
         return itemClient.getItems(ownerId);
     }
 
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> postComment(@RequestHeader("X-Sharer-User-Id") Long ownerId,
-                                              @PathVariable Long itemId,
-                                              @RequestBody @Valid CommentDto comment) {
+    public Mono<ResponseEntity<Object>> postComment(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                    @PathVariable Long itemId,
+                                                    @RequestBody @Valid CommentDto comment) {
         return itemClient.postComment(ownerId, itemId, comment);
     }
 }
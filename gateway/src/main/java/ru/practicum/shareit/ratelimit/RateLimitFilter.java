@@ -0,0 +1,60 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.shareit.exceptions.ErrorResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничивает частоту запросов пользователя (X-Sharer-User-Id) по маршрутам из shareit.rate-limit.routes.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    private final RateLimiter rateLimiter;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String user = request.getHeader(USER_HEADER);
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimiter.Route route = user == null ? null : rateLimiter.route(request.getMethod(), path);
+        if (route == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long userId;
+        try {
+            userId = Long.parseLong(user);
+        } catch (NumberFormatException e) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long wait = rateLimiter.tryAcquire(route, userId);
+        if (wait == RateLimiter.ALLOWED) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("Слишком много запросов, повторите позже"));
+    }
+}
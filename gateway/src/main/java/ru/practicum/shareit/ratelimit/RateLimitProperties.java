@@ -0,0 +1,51 @@
+package ru.practicum.shareit.ratelimit;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Лимиты запросов на пользователя. Для запроса берется первый подходящий маршрут.
+ */
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "shareit.rate-limit")
+public class RateLimitProperties {
+    boolean enabled = true;
+
+    /**
+     * Сколько корзин (пользователь + маршрут) хранится на маршрут, новая корзина сверх лимита вытесняет
+     * самую неактивную из нескольких.
+     */
+    int maxBuckets = 100_000;
+
+    Duration sweepInterval = Duration.ofSeconds(30);
+
+    List<Route> routes = new ArrayList<>();
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Route {
+        /**
+         * HTTP-метод, пусто - любой.
+         */
+        String method;
+
+        String path;
+
+        /**
+         * Сколько запросов можно сделать подряд.
+         */
+        int capacity;
+
+        /**
+         * Скорость пополнения, запросов в секунду.
+         */
+        double perSecond;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.practicum.shareit.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Token bucket на пользователя в виде GCRA: состояние корзины - одно число, время, когда она снова
+ * станет полной. Запрос проходит, если до этого момента осталось не больше capacity - 1 интервалов.
+ * Обновление - один CAS, без блокировок. Время - System.nanoTime(), оно может быть отрицательным,
+ * поэтому все отметки сравниваются только с показаниями тех же часов.
+ */
+@Component
+@EnableConfigurationProperties(RateLimitProperties.class)
+@Slf4j
+public class RateLimiter {
+    public static final long ALLOWED = 0;
+
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final boolean enabled;
+
+    private final int maxBuckets;
+
+    private final List<Route> routes;
+
+    private final LongSupplier clock;
+
+    private final ScheduledExecutorService sweeper;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, LongSupplier clock) {
+        this.enabled = properties.isEnabled();
+        this.maxBuckets = properties.getMaxBuckets();
+        this.clock = clock;
+        this.routes = properties.getRoutes().stream().map(Route::new).collect(Collectors.toList());
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSweepInterval().toMillis();
+        sweeper.scheduleWithFixedDelay(() -> sweep(clock.getAsLong()), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Маршрут запроса или null, если запрос не ограничивается.
+     */
+    @Nullable
+    public Route route(String method, String path) {
+        if (!enabled || routes.isEmpty()) {
+            return null;
+        }
+        PathContainer container = PathContainer.parsePath(path);
+        for (Route route : routes) {
+            if ((route.method == null || route.method.equalsIgnoreCase(method)) && route.pattern.matches(container)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Возвращает ALLOWED или через сколько наносекунд запрос пройдет.
+     */
+    public long tryAcquire(Route route, long userId) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = route.buckets.get(userId);
+        if (bucket == null) {
+            if (route.buckets.size() >= maxBuckets) {
+                evictIdlest(route, now);
+            }
+            bucket = route.buckets.computeIfAbsent(userId, id -> new AtomicLong(now));
+        }
+        while (true) {
+            long full = bucket.get();
+            long start = Math.max(full, now);
+            long wait = start - route.burstNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(full, start + route.intervalNanos)) {
+                return ALLOWED;
+            }
+        }
+    }
+
+    public int bucketCount() {
+        return routes.stream().mapToInt(route -> route.buckets.size()).sum();
+    }
+
+    /**
+     * Полная корзина ведет себя так же, как отсутствующая, поэтому ее можно удалить.
+     */
+    void sweep(long now) {
+        int before = bucketCount();
+        for (Route route : routes) {
+            route.buckets.values().removeIf(bucket -> bucket.get() <= now);
+        }
+        int removed = before - bucketCount();
+        if (removed > 0) {
+            log.debug("Удалено {} неактивных корзин rate limit", removed);
+        }
+    }
+
+    /**
+     * Освобождает место для новой корзины: удаляет полную корзину или, если среди первых EVICTION_SAMPLE
+     * полных нет, ту, что станет полной раньше остальных. Вытесненный пользователь получает полную корзину,
+     * поэтому поток выдуманных X-Sharer-User-Id не может ограничить новых пользователей.
+     */
+    private void evictIdlest(Route route, long now) {
+        Map.Entry<Long, AtomicLong> idlest = null;
+        int sampled = 0;
+        for (Map.Entry<Long, AtomicLong> entry : route.buckets.entrySet()) {
+            long full = entry.getValue().get();
+            if (full <= now) {
+                idlest = entry;
+                break;
+            }
+            if (idlest == null || full < idlest.getValue().get()) {
+                idlest = entry;
+            }
+            if (++sampled == EVICTION_SAMPLE) {
+                break;
+            }
+        }
+        if (idlest != null) {
+            route.buckets.remove(idlest.getKey(), idlest.getValue());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    public static final class Route {
+        private final String method;
+
+        private final PathPattern pattern;
+
+        private final long intervalNanos;
+
+        private final long burstNanos;
+
+        private final Map<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private Route(RateLimitProperties.Route properties) {
+            this.method = properties.getMethod() == null || properties.getMethod().isBlank()
+                    ? null : properties.getMethod();
+            this.pattern = PathPatternParser.defaultInstance.parse(properties.getPath());
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getPerSecond());
+            this.burstNanos = intervalNanos * (Math.max(properties.getCapacity(), 1) - 1);
+        }
+    }
+}
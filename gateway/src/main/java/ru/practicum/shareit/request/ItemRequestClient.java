@@ -1,13 +1,16 @@
 package ru.practicum.shareit.request;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.LoadBalancer;
+import ru.practicum.shareit.client.ResponseCache;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.util.Map;
@@ -16,29 +19,37 @@ import java.util.Map;
 public class ItemRequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
+    private final ResponseCache responseCache;
+
     @Autowired
-    public ItemRequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemRequestClient(RestTemplateBuilder builder, ClientHttpRequestFactory requestFactory, WebClient webClient,
+                             ResponseCache responseCache) {
         super(
+                "requests",
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .uriTemplateHandler(new DefaultUriBuilderFactory(LoadBalancer.BASE_URL + API_PREFIX))
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                webClient.mutate()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(LoadBalancer.BASE_URL + API_PREFIX))
                         .build()
         );
+        this.responseCache = responseCache;
     }
 
-    public ResponseEntity<Object> postRequst(long userId, ItemRequestDto itemRequestDto) {
+    public Mono<ResponseEntity<Object>> postRequst(long userId, ItemRequestDto itemRequestDto) {
         return post("", userId, itemRequestDto);
     }
 
-    public ResponseEntity<Object> getRequests(long userId) {
+    public Mono<ResponseEntity<Object>> getRequests(long userId) {
         return get("", userId);
     }
 
-    public ResponseEntity<Object> getRequest(long userId, long requestId) {
-        return get("/" + requestId, userId);
+    public Mono<ResponseEntity<Object>> getRequest(long userId, long requestId) {
+        return responseCache.get("requests/" + requestId, userId, () -> get("/" + requestId, userId));
     }
 
-    public ResponseEntity<Object> getAllRequests(long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getAllRequests(long userId, Integer from, Integer size) {
         Map<String, Object> params = Map.of(
                 "from", from,
                 "size", size
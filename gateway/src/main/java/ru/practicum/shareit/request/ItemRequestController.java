@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import javax.validation.Valid;
@@ -21,26 +22,26 @@ public class ItemRequestController {
     private final ItemRequestClient itemRequestClient;
 
     @PostMapping
-    public ResponseEntity<Object> postRequest(@RequestHeader("X-Sharer-User-Id") Long requesterId,
-                                              @RequestBody @Valid ItemRequestDto itemRequestDto) {
+    public Mono<ResponseEntity<Object>> postRequest(@RequestHeader("X-Sharer-User-Id") Long requesterId,
+                                                    @RequestBody @Valid ItemRequestDto itemRequestDto) {
         return itemRequestClient.postRequst(requesterId, itemRequestDto);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getRequests(@RequestHeader("X-Sharer-User-Id") Long requesterId) {
+    public Mono<ResponseEntity<Object>> getRequests(@RequestHeader("X-Sharer-User-Id") Long requesterId) {
         return itemRequestClient.getRequests(requesterId);
     }
 
     @GetMapping("/{requestId}")
-    public ResponseEntity<Object> getRequest(@RequestHeader("X-Sharer-User-Id") Long requesterId,
-                                             @PathVariable Long requestId) {
+    public Mono<ResponseEntity<Object>> getRequest(@RequestHeader("X-Sharer-User-Id") Long requesterId,
+                                                   @PathVariable Long requestId) {
         return itemRequestClient.getRequest(requesterId, requestId);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Object> getAllRequests(@RequestHeader("X-Sharer-User-Id") Long requesterId,
-                                                 @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
-                                                 @Positive @RequestParam(value = "size", defaultValue = "20") Integer size) {
+    public Mono<ResponseEntity<Object>> getAllRequests(@RequestHeader("X-Sharer-User-Id") Long requesterId,
+                                                       @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
+                                                       @Positive @RequestParam(value = "size", defaultValue = "20") Integer size) {
         return itemRequestClient.getAllRequests(requesterId, from, size);
     }
 }
@@ -1,46 +1,64 @@
 package ru.practicum.shareit.user;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.LoadBalancer;
+import ru.practicum.shareit.client.ResponseCache;
 import ru.practicum.shareit.user.dto.UserDto;
 
 @Service
 public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
 
+    private final ResponseCache responseCache;
+
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(RestTemplateBuilder builder, ClientHttpRequestFactory requestFactory, WebClient webClient,
+                      ResponseCache responseCache) {
         super(
+                "users",
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .uriTemplateHandler(new DefaultUriBuilderFactory(LoadBalancer.BASE_URL + API_PREFIX))
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                webClient.mutate()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(LoadBalancer.BASE_URL + API_PREFIX))
                         .build()
         );
+        this.responseCache = responseCache;
     }
 
-    public ResponseEntity<Object> postUser(UserDto userDto) {
+    public Mono<ResponseEntity<Object>> postUser(UserDto userDto) {
         return post("", userDto);
     }
 
-    public ResponseEntity<Object> getUsers() {
+    public Mono<ResponseEntity<Object>> getUsers() {
         return get("");
     }
 
-    public ResponseEntity<Object> getUser(long userId) {
-        return get("/" + userId);
+    public Mono<ResponseEntity<Object>> getUser(long userId) {
+        return responseCache.get("users/" + userId, null, () -> get("/" + userId, null, null, true));
     }
 
-    public ResponseEntity<Object> patchUser(long userId, UserDto userDto) {
-        return patch("/" + userId, userDto);
+    public Mono<ResponseEntity<Object>> patchUser(long userId, UserDto userDto) {
+        return patch("/" + userId, userDto).doOnNext(response -> {
+            responseCache.invalidate("users/" + userId);
+            // имя пользователя входит в комментарии к предметам
+            responseCache.invalidatePrefix("items/");
+        });
     }
 
-    public ResponseEntity<Object> deleteUser(long userId) {
-        return delete("/" + userId);
+    public Mono<ResponseEntity<Object>> deleteUser(long userId) {
+        return delete("/" + userId).doOnNext(response -> {
+            // вместе с пользователем удаляются его предметы и запросы
+            responseCache.invalidateAll();
+        });
     }
 }
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.item.dto.Create;
 import ru.practicum.shareit.user.dto.UserDto;
 
@@ -18,28 +19,28 @@ public class UserController {
     private final UserClient userClient;
 
     @PostMapping
-    public ResponseEntity<Object> postUser(@RequestBody @Validated(Create.class) UserDto userDto) {
+    public Mono<ResponseEntity<Object>> postUser(@RequestBody @Validated(Create.class) UserDto userDto) {
         return userClient.postUser(userDto);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getUsers() {
+    public Mono<ResponseEntity<Object>> getUsers() {
         return userClient.getUsers();
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<Object> getUser(@PathVariable long userId) {
+    public Mono<ResponseEntity<Object>> getUser(@PathVariable long userId) {
         return userClient.getUser(userId);
     }
 
     @PatchMapping("/{userId}")
-    public ResponseEntity<Object> patchUser(@RequestBody UserDto userDto, @PathVariable long userId) {
-        log.info("получен патч запрос с userId: {}", userId);
+    public Mono<ResponseEntity<Object>> patchUser(@RequestBody UserDto userDto, @PathVariable long userId) {
+        log.debug("получен патч запрос с userId: {}", userId);
         return userClient.patchUser(userId, userDto);
     }
 
     @DeleteMapping("/{userId}")
-    public ResponseEntity<Object> deleteUser(@PathVariable long userId) {
+    public Mono<ResponseEntity<Object>> deleteUser(@PathVariable long userId) {
         return userClient.deleteUser(userId);
     }
 }
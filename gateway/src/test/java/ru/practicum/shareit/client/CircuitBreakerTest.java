@@ -0,0 +1,156 @@
+package ru.practicum.shareit.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Переходы circuit breaker с подставленным временем: окно из 4 вызовов, размыкание при 50% ошибок,
+ * 10 с в OPEN, 2 пробных вызова.
+ */
+class CircuitBreakerTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long FAST = 10_000_000;
+
+    private final List<CircuitBreaker.State> transitions = new ArrayList<>();
+
+    private final CircuitBreaker breaker = new CircuitBreaker("test", properties(), transitions::add);
+
+    private long now = -100 * SECOND;
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        call(false);
+        call(false);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        call(true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(now + 9 * SECOND));
+        assertEquals(10, breaker.retryAfterSeconds(now));
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            long permit = breaker.tryAcquire(now);
+            breaker.onResult(permit, false, 4 * SECOND, now);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulProbes() {
+        open();
+        now += 10 * SECOND;
+
+        long first = breaker.tryAcquire(now);
+        long second = breaker.tryAcquire(now);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(now));
+
+        breaker.onResult(first, false, FAST, now);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(second, false, FAST, now);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED),
+                transitions);
+    }
+
+    @Test
+    void failedProbeReopens() {
+        open();
+        now += 10 * SECOND;
+
+        long probe = breaker.tryAcquire(now);
+        breaker.onResult(probe, true, FAST, now);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(now + SECOND));
+    }
+
+    @Test
+    void cancelledProbeFreesItsSlot() {
+        open();
+        now += 10 * SECOND;
+        long first = breaker.tryAcquire(now);
+        breaker.tryAcquire(now);
+
+        breaker.onCancel(first);
+
+        assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(now));
+    }
+
+    @Test
+    void callStartedWhileClosedIsNotCountedAsProbe() {
+        long slow = breaker.tryAcquire(now);
+        open();
+        now += 10 * SECOND;
+        long probe = breaker.tryAcquire(now);
+
+        breaker.onResult(slow, false, FAST, now);
+        breaker.onResult(slow, false, FAST, now);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onResult(slow, true, FAST, now);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onCancel(slow);
+        breaker.tryAcquire(now);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(now));
+
+        breaker.onResult(probe, false, FAST, now);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void probeFinishingAfterReopenIsIgnored() {
+        open();
+        now += 10 * SECOND;
+        long late = breaker.tryAcquire(now);
+        long failed = breaker.tryAcquire(now);
+        breaker.onResult(failed, true, FAST, now);
+        now += 10 * SECOND;
+        long probe = breaker.tryAcquire(now);
+
+        breaker.onResult(late, false, FAST, now);
+        breaker.onResult(probe, false, FAST, now);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void call(boolean failed) {
+        long permit = breaker.tryAcquire(now);
+        assertNotEquals(CircuitBreaker.REJECTED, permit);
+        breaker.onResult(permit, failed, FAST, now);
+    }
+
+    private static ResilienceProperties.CircuitBreaker properties() {
+        ResilienceProperties.CircuitBreaker properties = new ResilienceProperties.CircuitBreaker();
+        properties.setWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(50);
+        properties.setSlowCallThreshold(Duration.ofSeconds(3));
+        properties.setOpenDuration(Duration.ofSeconds(10));
+        properties.setHalfOpenCalls(2);
+        return properties;
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.item;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.ResilienceProperties;
+import ru.practicum.shareit.client.ResponseCache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Объединение одновременных GET: поиск не зависит от пользователя и выполняется одним запросом к серверу,
+ * предмет по id запрашивается для каждого пользователя отдельно. Ответ сервера задерживается,
+ * пока все запросы не дойдут до gateway.
+ */
+class ItemClientCoalescingTest {
+    private static final int USERS = 20;
+
+    private final AtomicInteger upstream = new AtomicInteger();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(USERS);
+
+    private ItemClient itemClient;
+
+    @BeforeEach
+    void createClient() {
+        ClientHttpRequestFactory requestFactory = (uri, method) -> new MockClientHttpRequest(method, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() {
+                upstream.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                MockClientHttpResponse response = new MockClientHttpResponse(
+                        "[]".getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                return response;
+            }
+        };
+        itemClient = new ItemClient(new RestTemplateBuilder(), requestFactory, WebClient.create(),
+                new ResponseCache(false, 10, Duration.ofSeconds(1), registry));
+        itemClient.setResilience(new ResilienceProperties(), registry);
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void searchesFromDifferentUsersMakeOneUpstreamCall() throws Exception {
+        List<Future<ResponseEntity<Object>>> responses = callForEachUser(
+                userId -> itemClient.getItemsBySearch(userId, "дрель", 0, 10));
+
+        awaitUntil(() -> coalesced() == USERS - 1);
+        release.countDown();
+
+        assertAllOk(responses);
+        assertEquals(1, upstream.get());
+    }
+
+    @Test
+    void freeSearchesFromDifferentUsersMakeOneUpstreamCall() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<Future<ResponseEntity<Object>>> responses = callForEachUser(
+                userId -> itemClient.getFreeItemsBySearch(userId, "дрель", start, start.plusHours(2), 0, 10));
+
+        awaitUntil(() -> coalesced() == USERS - 1);
+        release.countDown();
+
+        assertAllOk(responses);
+        assertEquals(1, upstream.get());
+    }
+
+    @Test
+    void itemFromDifferentUsersIsRequestedPerUser() throws Exception {
+        List<Future<ResponseEntity<Object>>> responses = callForEachUser(userId -> itemClient.getItemById(userId, 1));
+
+        awaitUntil(() -> upstream.get() == USERS);
+        release.countDown();
+
+        assertAllOk(responses);
+        assertEquals(USERS, upstream.get());
+        assertEquals(0, coalesced());
+    }
+
+    private List<Future<ResponseEntity<Object>>> callForEachUser(LongFunction<Mono<ResponseEntity<Object>>> call) {
+        List<Future<ResponseEntity<Object>>> responses = new ArrayList<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            long user = userId;
+            responses.add(executor.submit(() -> call.apply(user).block()));
+        }
+        return responses;
+    }
+
+    private long coalesced() {
+        return (long) registry.counter("shareit.gateway.coalesced", "client", "items").count();
+    }
+
+    private static void assertAllOk(List<Future<ResponseEntity<Object>>> responses) throws Exception {
+        for (Future<ResponseEntity<Object>> response : responses) {
+            assertEquals(HttpStatus.OK, response.get(10, TimeUnit.SECONDS).getStatusCode());
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "запросы не дошли до gateway за 10 с");
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.shareit.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Микробенчмарк route + tryAcquire с маршрутами из application.properties и 10 000 пользователей.
+ * В обычную сборку не входит, запускается вручную:
+ * mvn -B -pl gateway test -Dtest=RateLimiterBenchmark -Dbenchmark=true
+ * Печатает нс на операцию для каждого замера после прогрева.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RateLimiterBenchmark {
+    private static final int USERS = 10_000;
+
+    private static final int OPERATIONS = 2_000_000;
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int ROUNDS = 5;
+
+    private static final String[][] REQUESTS = {
+            {"GET", "/bookings/owner"},
+            {"GET", "/items/search"},
+            {"GET", "/items/1"},
+            {"POST", "/bookings"},
+    };
+
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void createRateLimiter() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxBuckets(100_000);
+        properties.setSweepInterval(Duration.ofHours(1));
+        properties.setRoutes(List.of(
+                route("GET", "/bookings/**", 20, 10),
+                route("GET", "/items/search/**", 20, 10),
+                route(null, "/**", 50, 25)));
+        rateLimiter = new RateLimiter(properties);
+    }
+
+    @AfterEach
+    void shutdown() {
+        rateLimiter.shutdown();
+    }
+
+    @Test
+    void routeAndTryAcquire() {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            measure(true);
+            measure(false);
+        }
+        for (int i = 0; i < ROUNDS; i++) {
+            System.out.printf("route + tryAcquire: %.1f ns/op, tryAcquire: %.1f ns/op%n",
+                    measure(true), measure(false));
+        }
+    }
+
+    /**
+     * withRoute - маршрут ищется для каждого запроса, иначе берется найденный заранее.
+     */
+    private double measure(boolean withRoute) {
+        RateLimiter.Route[] routes = new RateLimiter.Route[REQUESTS.length];
+        for (int i = 0; i < REQUESTS.length; i++) {
+            routes[i] = rateLimiter.route(REQUESTS[i][0], REQUESTS[i][1]);
+        }
+        long allowed = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int request = i & 3;
+            RateLimiter.Route route = withRoute
+                    ? rateLimiter.route(REQUESTS[request][0], REQUESTS[request][1])
+                    : routes[request];
+            if (rateLimiter.tryAcquire(route, i % USERS) == RateLimiter.ALLOWED) {
+                allowed++;
+            }
+        }
+        double nanosPerOperation = (double) (System.nanoTime() - started) / OPERATIONS;
+        assertTrue(allowed > 0);
+        return nanosPerOperation;
+    }
+
+    private static RateLimitProperties.Route route(String method, String path, int capacity, double perSecond) {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setMethod(method);
+        route.setPath(path);
+        route.setCapacity(capacity);
+        route.setPerSecond(perSecond);
+        return route;
+    }
+}
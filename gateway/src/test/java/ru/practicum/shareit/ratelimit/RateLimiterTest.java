@@ -0,0 +1,107 @@
+package ru.practicum.shareit.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GCRA с подставленными часами: System.nanoTime() может быть любого знака, в том числе отрицательным.
+ * Число корзин ограничено вытеснением, а не общей корзиной для всех сверх лимита.
+ */
+class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private RateLimiter rateLimiter;
+
+    @AfterEach
+    void shutdown() {
+        rateLimiter.shutdown();
+    }
+
+    @Test
+    void floodOfFakeUserIdsDoesNotThrottleNewUsers() {
+        clock.set(Long.MIN_VALUE / 2);
+        rateLimiter = new RateLimiter(properties(100, 2), clock::get);
+        RateLimiter.Route route = rateLimiter.route("GET", "/items");
+        for (long fakeId = 1; fakeId <= 100; fakeId++) {
+            rateLimiter.tryAcquire(route, fakeId);
+            rateLimiter.tryAcquire(route, fakeId);
+        }
+
+        for (long userId = 1001; userId <= 1010; userId++) {
+            assertEquals(RateLimiter.ALLOWED, rateLimiter.tryAcquire(route, userId));
+            assertEquals(RateLimiter.ALLOWED, rateLimiter.tryAcquire(route, userId));
+            assertEquals(SECOND, rateLimiter.tryAcquire(route, userId));
+        }
+        assertEquals(100, rateLimiter.bucketCount());
+    }
+
+    @Test
+    void fullBucketIsEvictedBeforeActiveOne() {
+        clock.set(-SECOND / 2);
+        rateLimiter = new RateLimiter(properties(2, 1), clock::get);
+        RateLimiter.Route route = rateLimiter.route("GET", "/items");
+        rateLimiter.tryAcquire(route, 2);
+        clock.addAndGet(SECOND);
+        rateLimiter.tryAcquire(route, 1);
+
+        assertEquals(RateLimiter.ALLOWED, rateLimiter.tryAcquire(route, 3));
+        assertEquals(SECOND, rateLimiter.tryAcquire(route, 1));
+        assertEquals(2, rateLimiter.bucketCount());
+    }
+
+    @Test
+    void userBucketAllowsBurstThenRefillsWithNegativeClock() {
+        clock.set(-10 * SECOND);
+        rateLimiter = new RateLimiter(properties(100, 3), clock::get);
+        RateLimiter.Route route = rateLimiter.route("GET", "/items");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RateLimiter.ALLOWED, rateLimiter.tryAcquire(route, 1));
+        }
+        assertEquals(SECOND, rateLimiter.tryAcquire(route, 1));
+        assertEquals(RateLimiter.ALLOWED, rateLimiter.tryAcquire(route, 2));
+
+        clock.addAndGet(SECOND);
+        assertEquals(RateLimiter.ALLOWED, rateLimiter.tryAcquire(route, 1));
+        assertTrue(rateLimiter.tryAcquire(route, 1) > 0);
+    }
+
+    @Test
+    void sweepRemovesOnlyFullBucketsAcrossZero() {
+        clock.set(-SECOND / 2);
+        rateLimiter = new RateLimiter(properties(100, 3), clock::get);
+        RateLimiter.Route route = rateLimiter.route("GET", "/items");
+        rateLimiter.tryAcquire(route, 1);
+        rateLimiter.tryAcquire(route, 2);
+        rateLimiter.tryAcquire(route, 2);
+
+        rateLimiter.sweep(clock.addAndGet(SECOND));
+        assertEquals(1, rateLimiter.bucketCount());
+
+        rateLimiter.sweep(clock.addAndGet(SECOND));
+        assertEquals(0, rateLimiter.bucketCount());
+    }
+
+    private static RateLimitProperties properties(int maxBuckets, int capacity) {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setMethod("GET");
+        route.setPath("/items");
+        route.setCapacity(capacity);
+        route.setPerSecond(1);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxBuckets(maxBuckets);
+        properties.setSweepInterval(Duration.ofHours(1));
+        properties.setRoutes(List.of(route));
+        return properties;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.shareit;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Не дает запустить экземпляр, работающий с общей базой вместе с другими (shareit.cluster.enabled=true),
+ * если включено состояние процесса, которое обновляется только его записями, или Hibernate пересоздает схему.
+ * Проверка идет до создания бинов, чтобы create-drop не успел удалить таблицы других экземпляров.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.cluster.enabled", havingValue = "true")
+public class SharedDatabaseGuard implements BeanFactoryPostProcessor, EnvironmentAware {
+    private static final Set<String> SCHEMA_CHANGING_DDL = Set.of("create", "create-drop", "create-only", "update");
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        List<String> problems = new ArrayList<>();
+        if (environment.getProperty("shareit.search.in-memory-index", Boolean.class, false)) {
+            problems.add("shareit.search.in-memory-index=true");
+        }
+        if (environment.getProperty("shareit.booking.availability-index.enabled", Boolean.class, true)) {
+            problems.add("shareit.booking.availability-index.enabled=true");
+        }
+        String ddl = environment.getProperty("spring.jpa.hibernate.ddl-auto", "none");
+        if (SCHEMA_CHANGING_DDL.contains(ddl)) {
+            problems.add("spring.jpa.hibernate.ddl-auto=" + ddl);
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Экземпляр с общей базой (shareit.cluster.enabled=true) не запускается с "
+                    + String.join(", ", problems) + ", используйте профиль cluster");
+        }
+    }
+}
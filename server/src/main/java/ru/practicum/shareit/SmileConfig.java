@@ -0,0 +1,23 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Бинарный формат Smile (application/x-jackson-smile) для запросов gateway.
+ * Формат выбирается по заголовкам Accept и Content-Type, остальные клиенты по-прежнему получают JSON.
+ */
+@Configuration
+public class SmileConfig {
+
+    /**
+     * ObjectMapper с настройками spring.jackson.*, как у JSON: даты строками, а не массивами.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -3,8 +3,10 @@ package ru.practicum.shareit.booking;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookingAccept;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
 
 import java.util.List;
@@ -13,6 +15,7 @@ import java.util.List;
 @RequestMapping(path = "/bookings")
 @RequiredArgsConstructor
 public class BookingController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Autowired
     private final BookingService bookingService;
@@ -36,18 +39,42 @@ public class BookingController {
     }
 
     @GetMapping
-    public List<BookingDto> getBookings(@RequestHeader("X-Sharer-User-Id") Long requesterId,
-                                        @RequestParam(name = "state", defaultValue = "ALL") String state,
-                                        @RequestParam Integer from,
-                                        @RequestParam Integer size) {
-        return bookingService.findAllBookingsWithParametres(requesterId, PageRequest.of(from / size, size), state);
+    public ResponseEntity<List<BookingDto>> getBookings(@RequestHeader("X-Sharer-User-Id") Long requesterId,
+                                                        @RequestParam(name = "state", defaultValue = "ALL") String state,
+                                                        @RequestParam(defaultValue = "0") Integer from,
+                                                        @RequestParam Integer size,
+                                                        @RequestParam(required = false) String cursor) {
+        if (cursor == null) {
+            return ResponseEntity.ok(bookingService.findAllBookingsWithParametres(requesterId,
+                    PageRequest.of(from / size, size), state));
+        }
+        List<BookingDto> bookings = bookingService.findAllBookingsBefore(requesterId, toCursor(cursor), size, state);
+        return withNextCursor(bookings, size);
     }
 
     @GetMapping("/owner")
-    public List<BookingDto> getBookingForOwner(@RequestHeader("X-Sharer-User-Id") Long ownerId,
-                                               @RequestParam(name = "state", defaultValue = "ALL") String state,
-                                               @RequestParam Integer from,
-                                               @RequestParam Integer size) {
-        return bookingService.getBookingsForOwner(ownerId, state, PageRequest.of(from / size, size));
+    public ResponseEntity<List<BookingDto>> getBookingForOwner(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                               @RequestParam(name = "state", defaultValue = "ALL") String state,
+                                                               @RequestParam(defaultValue = "0") Integer from,
+                                                               @RequestParam Integer size,
+                                                               @RequestParam(required = false) String cursor) {
+        if (cursor == null) {
+            return ResponseEntity.ok(bookingService.getBookingsForOwner(ownerId, state,
+                    PageRequest.of(from / size, size)));
+        }
+        List<BookingDto> bookings = bookingService.getBookingsForOwnerBefore(ownerId, state, toCursor(cursor), size);
+        return withNextCursor(bookings, size);
+    }
+
+    private static BookingCursor toCursor(String cursor) {
+        return cursor.isEmpty() ? null : BookingCursor.decode(cursor);
+    }
+
+    private static ResponseEntity<List<BookingDto>> withNextCursor(List<BookingDto> bookings, int size) {
+        String next = BookingCursor.next(bookings, size);
+        if (next == null) {
+            return ResponseEntity.ok(bookings);
+        }
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, next).body(bookings);
     }
 }
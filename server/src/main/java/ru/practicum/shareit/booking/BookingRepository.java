@@ -3,16 +3,98 @@ package ru.practicum.shareit.booking;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingSlot;
+import ru.practicum.shareit.booking.dto.Status;
 import ru.practicum.shareit.booking.model.Booking;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    @Query(value = "SELECT b from Booking b where b.booker.id = :id order by b.start DESC")
-    List<Booking> findPageAllByUserId(Long id, Pageable pageable);
+    String DTO = "select new ru.practicum.shareit.booking.dto.BookingDto(" +
+            "b.id, b.start, b.end, b.status, b.booker.id, i.id, i.name) from Booking b join b.item i";
 
-    @Query(value = "select b from Booking b where b.item.id in (select i.id from Item i where i.owner.id = :ownerId) order by b.start DESC")
-    List<Booking> findPageBookingsForOwner(Long ownerId, Pageable pageable);
+    String ORDER = " order by b.start DESC, b.id DESC";
+
+    String BEFORE_CURSOR = " and b.start <= :start and (b.start < :start or b.id < :bookingId)";
+
+    @Query(value = DTO + " where b.booker.id = :id" + ORDER)
+    List<BookingDto> findPageAllByUserId(Long id, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId" + ORDER)
+    List<BookingDto> findPageBookingsForOwner(Long ownerId, Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id and b.start > :now" + ORDER)
+    List<BookingDto> findPageFutureByUserId(Long id, LocalDateTime now, Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id and b.end < :now" + ORDER)
+    List<BookingDto> findPagePastByUserId(Long id, LocalDateTime now, Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id and b.start < :now and b.end > :now" + ORDER)
+    List<BookingDto> findPageCurrentByUserId(Long id, LocalDateTime now, Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id and b.status = :status" + ORDER)
+    List<BookingDto> findPageByUserIdAndStatus(Long id, Status status, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId and b.start > :now" + ORDER)
+    List<BookingDto> findPageFutureBookingsForOwner(Long ownerId, LocalDateTime now, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId and b.end < :now" + ORDER)
+    List<BookingDto> findPagePastBookingsForOwner(Long ownerId, LocalDateTime now, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId " +
+            "and b.start < :now and b.end > :now" + ORDER)
+    List<BookingDto> findPageCurrentBookingsForOwner(Long ownerId, LocalDateTime now, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId and b.status = :status" + ORDER)
+    List<BookingDto> findPageBookingsForOwnerWithStatus(Long ownerId, Status status, Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageAllByUserIdBefore(Long id, LocalDateTime start, Long bookingId, Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id and b.start > :now" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageFutureByUserIdBefore(Long id, LocalDateTime now, LocalDateTime start, Long bookingId,
+                                               Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id and b.end < :now" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPagePastByUserIdBefore(Long id, LocalDateTime now, LocalDateTime start, Long bookingId,
+                                             Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id " +
+            "and b.start < :now and b.end > :now" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageCurrentByUserIdBefore(Long id, LocalDateTime now, LocalDateTime start, Long bookingId,
+                                                Pageable pageable);
+
+    @Query(value = DTO + " where b.booker.id = :id and b.status = :status" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageByUserIdAndStatusBefore(Long id, Status status, LocalDateTime start, Long bookingId,
+                                                  Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageBookingsForOwnerBefore(Long ownerId, LocalDateTime start, Long bookingId,
+                                                 Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId " +
+            "and b.start > :now" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageFutureBookingsForOwnerBefore(Long ownerId, LocalDateTime now, LocalDateTime start,
+                                                       Long bookingId, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId " +
+            "and b.end < :now" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPagePastBookingsForOwnerBefore(Long ownerId, LocalDateTime now, LocalDateTime start,
+                                                     Long bookingId, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId " +
+            "and b.start < :now and b.end > :now" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageCurrentBookingsForOwnerBefore(Long ownerId, LocalDateTime now, LocalDateTime start,
+                                                        Long bookingId, Pageable pageable);
+
+    @Query(value = DTO + " where i.owner.id = :ownerId " +
+            "and b.status = :status" + BEFORE_CURSOR + ORDER)
+    List<BookingDto> findPageBookingsForOwnerWithStatusBefore(Long ownerId, Status status, LocalDateTime start,
+                                                           Long bookingId, Pageable pageable);
 
     @Query(value = "select b from Booking b where b.booker.id = :id")
     List<Booking> findAllByUserId(Long id);
@@ -23,6 +105,39 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query(value = "select b from Booking b where b.item.id = :id")
     List<Booking> findAllForItem(Long id);
 
+    @Query(value = "select b from Booking b where b.item.id in :itemIds and b.status = :status and (" +
+            "b.start = (select max(l.start) from Booking l " +
+            "where l.item.id = b.item.id and l.status = :status and l.start < :now) " +
+            "or b.start = (select min(n.start) from Booking n " +
+            "where n.item.id = b.item.id and n.status = :status and n.start > :now))")
+    List<Booking> findLastAndNextForItems(Collection<Long> itemIds, Status status, LocalDateTime now);
+
+    @Query(value = "select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.item.id = :itemId and b.status = :status and (" +
+            "b.start = (select max(l.start) from Booking l " +
+            "where l.item.id = :itemId and l.status = :status and l.start < :now) " +
+            "or b.start = (select min(n.start) from Booking n " +
+            "where n.item.id = :itemId and n.status = :status and n.start > :now)) order by b.id")
+    List<BookingSlot> findLastAndNextSlotsForItem(Long itemId, Status status, LocalDateTime now);
+
+    @Query(value = "select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.status in :statuses and b.end > :now")
+    List<BookingSlot> findSlotsEndingAfter(Collection<Status> statuses, LocalDateTime now);
+
+    @Query(value = "select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.item.id = :itemId and b.status in :statuses and b.start < :end and b.end > :start")
+    List<BookingSlot> findSlotsOverlapping(Long itemId, Collection<Status> statuses, LocalDateTime start,
+                                           LocalDateTime end);
+
+    @Query(value = "select distinct b.item.id from Booking b " +
+            "where b.item.id in :itemIds and b.status in :statuses and b.start < :end and b.end > :start")
+    Set<Long> findItemIdsWithOverlapping(Collection<Long> itemIds, Collection<Status> statuses, LocalDateTime start,
+                                         LocalDateTime end);
+
+    @Query(value = "select count(b) > 0 from Booking b where b.item.id = :itemId and b.status = :status " +
+            "and b.start < :end and b.end > :start")
+    boolean existsOverlapping(Long itemId, Status status, LocalDateTime start, LocalDateTime end);
+
     @Query(value = "select b from Booking b where b.item.id = :itemId and b.booker.id = :userId")
     List<Booking> findBookingsFromUserToItemWithStatus(Long itemId, Long userId);
 
@@ -2,9 +2,12 @@ package ru.practicum.shareit.booking;
 
 import org.springframework.data.domain.Pageable;
 import ru.practicum.shareit.booking.dto.BookingAccept;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.TimeSlot;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface BookingService {
@@ -18,5 +21,18 @@ public interface BookingService {
 
     ItemDto setLastAndNextBooking(ItemDto itemDto);
 
+    List<ItemDto> setLastAndNextBookings(List<ItemDto> itemDtos);
+
+    /**
+     * id последнего и следующего бронирований предмета без загрузки самих бронирований, для ETag.
+     */
+    String getLastAndNextBookingStamp(Long itemId);
+
+    List<TimeSlot> getFreeSlots(Long itemId, LocalDateTime from, LocalDateTime to);
+
     List<BookingDto> findAllBookingsWithParametres(Long requesterId, Pageable pageable, String state);
+
+    List<BookingDto> findAllBookingsBefore(Long requesterId, BookingCursor cursor, int size, String state);
+
+    List<BookingDto> getBookingsForOwnerBefore(Long ownerId, String state, BookingCursor cursor, int size);
 }
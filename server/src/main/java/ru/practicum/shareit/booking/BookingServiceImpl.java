@@ -2,11 +2,17 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.availability.BookingAvailabilityIndex;
 import ru.practicum.shareit.booking.dto.BookingAccept;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingSlot;
 import ru.practicum.shareit.booking.dto.Status;
+import ru.practicum.shareit.booking.dto.TimeSlot;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.exceptions.*;
@@ -16,9 +22,10 @@ import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,30 +42,31 @@ public class BookingServiceImpl implements BookingService {
 
     private final BookingMapper mapper;
 
+    private final BookingAvailabilityIndex availabilityIndex;
+
+    @Transactional
     public BookingDto createBooking(BookingAccept bookingAccept, Long bookerId) {
-        if (!userRepository.findById(bookerId).isPresent()) {
-            throw new UserNotFoundException("Не найден пользователь");
-        }
-        User booker = userRepository.findById(bookerId).get();
+        User booker = userRepository.findById(bookerId)
+                .orElseThrow(() -> new UserNotFoundException("Не найден пользователь"));
         Booking booking = mapper.toEntity(bookingAccept);
         booking.setBooker(booker);
-        if (itemRepository.findById(bookingAccept.getItemId()).isPresent()) {
-            booking.setItem(itemRepository.findById(bookingAccept.getItemId()).get());
-        } else {
-            throw new ItemNotFoundException("Не найден предмет с указанным id");
-        }
-        if (userRepository.findById(bookerId).get().getItems().contains(booking.getItem())) {
+        booking.setItem(itemRepository.findByIdForUpdate(bookingAccept.getItemId())
+                .orElseThrow(() -> new ItemNotFoundException("Не найден предмет с указанным id")));
+        if (booker.getItems().contains(booking.getItem())) {
             throw new SelfBookingException("Нельзя бронировать вещь у себя же!");
         }
         try {
             checkBooking(booking);
             booking.setStatus(Status.WAITING);
-            return mapper.toDto(bookingRepository.save(booking));
+            Booking saved = bookingRepository.save(booking);
+            availabilityIndex.onSaved(saved);
+            return mapper.toDto(saved);
         } catch (Exception e) {
             throw new IncorrectBookingException(e.getMessage());
         }
     }
 
+    @Transactional
     public BookingDto patchBooking(Long requesterId, Boolean approved, Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId).get();
         if (userRepository.findById(requesterId).get().getItems().contains(booking.getItem())
@@ -67,6 +75,10 @@ public class BookingServiceImpl implements BookingService {
                 throw new IllegalArgumentException("Статус уже обновлен");
             } else {
                 if (approved) {
+                    itemRepository.findByIdForUpdate(booking.getItem().getId());
+                    if (hasApprovedOverlap(booking)) {
+                        throw new ItemAlreadyInUseException("Предмет уже забронирован на это время");
+                    }
                     booking.setStatus(Status.APPROVED);
                 } else {
                     booking.setStatus(Status.REJECTED);
@@ -75,7 +87,9 @@ public class BookingServiceImpl implements BookingService {
         } else {
             throw new NoSuchElementException("Обновлять статус вещи может только ее владелец");
         }
-        return mapper.toDto(bookingRepository.save(booking));
+        Booking saved = bookingRepository.save(booking);
+        availabilityIndex.onSaved(saved);
+        return mapper.toDto(saved);
     }
 
     public BookingDto getBookingById(Long bookingId, Long requesterId) {
@@ -88,50 +102,23 @@ public class BookingServiceImpl implements BookingService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<BookingDto> getBookingsForOwner(Long ownerId, String state, Pageable pageable) {
-        if (userRepository.findById(ownerId).isPresent()) {
+        if (userRepository.existsById(ownerId)) {
+            LocalDateTime now = LocalDateTime.now();
             switch (state) {
                 case "ALL":
-                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable).stream()
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable);
                 case "FUTURE":
-                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable).stream()
-                            .filter(booking -> booking.getStart().isAfter(LocalDateTime.now()))
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPageFutureBookingsForOwner(ownerId, now, pageable);
                 case "PAST":
-                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable).stream()
-                            .filter(booking -> booking.getEnd().isBefore(LocalDateTime.now()))
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPagePastBookingsForOwner(ownerId, now, pageable);
+                case "CURRENT":
+                    return bookingRepository.findPageCurrentBookingsForOwner(ownerId, now, pageable);
                 case "WAITING":
-                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable).stream()
-                            .map(mapper::toDto)
-                            .filter(bookingDto -> bookingDto.getStatus().equals(Status.WAITING))
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
                 case "REJECTED":
-                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable).stream()
-                            .map(mapper::toDto)
-                            .filter(bookingDto -> bookingDto.getStatus().equals(Status.REJECTED))
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
                 case "APPROVED":
-                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable).stream()
-                            .map(mapper::toDto)
-                            .filter(bookingDto -> bookingDto.getStatus().equals(Status.APPROVED))
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
-                case "CURRENT":
-                    return bookingRepository.findPageBookingsForOwner(ownerId, pageable).stream()
-                            .filter(booking -> booking.getEnd().isAfter(LocalDateTime.now()) && booking.getStart().isBefore(LocalDateTime.now()))
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPageBookingsForOwnerWithStatus(ownerId, Status.valueOf(state), pageable);
                 default:
                     throw new RuntimeException("Unknown state: UNSUPPORTED_STATUS");
             }
@@ -141,73 +128,139 @@ public class BookingServiceImpl implements BookingService {
 
     }
 
+    @Transactional(readOnly = true)
+    public List<BookingDto> getBookingsForOwnerBefore(Long ownerId, String state, BookingCursor cursor, int size) {
+        if (cursor == null) {
+            return getBookingsForOwner(ownerId, state, PageRequest.of(0, size));
+        }
+        if (userRepository.existsById(ownerId)) {
+            LocalDateTime now = LocalDateTime.now();
+            Pageable limit = PageRequest.of(0, size);
+            switch (state) {
+                case "ALL":
+                    return bookingRepository.findPageBookingsForOwnerBefore(ownerId,
+                            cursor.getStart(), cursor.getId(), limit);
+                case "FUTURE":
+                    return bookingRepository.findPageFutureBookingsForOwnerBefore(ownerId, now,
+                            cursor.getStart(), cursor.getId(), limit);
+                case "PAST":
+                    return bookingRepository.findPagePastBookingsForOwnerBefore(ownerId, now,
+                            cursor.getStart(), cursor.getId(), limit);
+                case "CURRENT":
+                    return bookingRepository.findPageCurrentBookingsForOwnerBefore(ownerId, now,
+                            cursor.getStart(), cursor.getId(), limit);
+                case "WAITING":
+                case "REJECTED":
+                case "APPROVED":
+                    return bookingRepository.findPageBookingsForOwnerWithStatusBefore(ownerId, Status.valueOf(state),
+                            cursor.getStart(), cursor.getId(), limit);
+                default:
+                    throw new RuntimeException("Unknown state: UNSUPPORTED_STATUS");
+            }
+        } else {
+            throw new UserNotFoundException("Не найден пользователь");
+        }
+    }
+
     @Override
     public ItemDto setLastAndNextBooking(ItemDto itemDto) {
+        return setLastAndNextBookings(List.of(itemDto)).get(0);
+    }
+
+    @Override
+    public List<ItemDto> setLastAndNextBookings(List<ItemDto> itemDtos) {
+        if (itemDtos.isEmpty()) {
+            return itemDtos;
+        }
         LocalDateTime now = LocalDateTime.now();
-        for (Booking booking : bookingRepository.findAllForItem(itemDto.getId())) {
-            if (itemDto.getLastBooking() == null && booking.getStart().isBefore(now) && booking.getStatus().equals(Status.APPROVED)) {
-                itemDto.setLastBooking(mapper.toBookingItem(booking));
-            } else if (itemDto.getNextBooking() == null && booking.getStart().isAfter(now) && booking.getStatus().equals(Status.APPROVED)) {
-                itemDto.setNextBooking(mapper.toBookingItem(booking));
-            } else if (itemDto.getLastBooking() != null
-                    && booking.getStart().isBefore(now)
-                    && booking.getStart().isAfter(itemDto.getLastBooking().getStart())
-                    && booking.getStatus().equals(Status.APPROVED)) {
-                itemDto.setLastBooking(mapper.toBookingItem(booking));
-            } else if (itemDto.getNextBooking() != null
-                    && booking.getStart().isAfter(now)
-                    && itemDto.getNextBooking().getStart().isAfter(booking.getStart())
-                    && booking.getStatus().equals(Status.APPROVED)) {
+        Map<Long, ItemDto> itemsById = itemDtos.stream()
+                .collect(Collectors.toMap(ItemDto::getId, Function.identity(), (first, second) -> first));
+        for (Booking booking : bookingRepository.findLastAndNextForItems(itemsById.keySet(), Status.APPROVED, now)) {
+            ItemDto itemDto = itemsById.get(booking.getItem().getId());
+            if (booking.getStart().isBefore(now)) {
+                if (itemDto.getLastBooking() == null) {
+                    itemDto.setLastBooking(mapper.toBookingItem(booking));
+                }
+            } else if (itemDto.getNextBooking() == null) {
                 itemDto.setNextBooking(mapper.toBookingItem(booking));
             }
         }
-        return itemDto;
+        return itemDtos;
     }
 
+    @Override
+    public String getLastAndNextBookingStamp(Long itemId) {
+        LocalDateTime now = LocalDateTime.now();
+        StringBuilder last = new StringBuilder("l");
+        StringBuilder next = new StringBuilder("n");
+        for (BookingSlot slot : bookingRepository.findLastAndNextSlotsForItem(itemId, Status.APPROVED, now)) {
+            (slot.getStart().isBefore(now) ? last : next).append(slot.getId()).append('.');
+        }
+        return last.append(next).toString();
+    }
+
+    @Override
+    public List<TimeSlot> getFreeSlots(Long itemId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        if (!itemRepository.existsById(itemId)) {
+            throw new ItemNotFoundException("Не найден предмет с указанным id");
+        }
+        return availabilityIndex.freeSlots(itemId, from, to);
+    }
+
+    @Transactional(readOnly = true)
     public List<BookingDto> findAllBookingsWithParametres(Long requesterId, Pageable pageable, String state) {
-        if (userRepository.findById(requesterId).isPresent()) {
+        if (userRepository.existsById(requesterId)) {
+            LocalDateTime now = LocalDateTime.now();
             switch (state) {
                 case "ALL":
-                    return bookingRepository.findPageAllByUserId(requesterId, pageable).stream()
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPageAllByUserId(requesterId, pageable);
                 case "FUTURE":
-                    return bookingRepository.findPageAllByUserId(requesterId, pageable).stream()
-                            .filter(booking -> booking.getStart().isAfter(LocalDateTime.now()))
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPageFutureByUserId(requesterId, now, pageable);
                 case "PAST":
-                    return bookingRepository.findPageAllByUserId(requesterId, pageable).stream()
-                            .filter(booking -> booking.getEnd().isBefore(LocalDateTime.now()))
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPagePastByUserId(requesterId, now, pageable);
+                case "CURRENT":
+                    return bookingRepository.findPageCurrentByUserId(requesterId, now, pageable);
                 case "WAITING":
-                    return bookingRepository.findPageAllByUserId(requesterId, pageable).stream()
-                            .map(mapper::toDto)
-                            .filter(bookingDto -> bookingDto.getStatus().equals(Status.WAITING))
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
                 case "REJECTED":
-                    return bookingRepository.findPageAllByUserId(requesterId, pageable).stream()
-                            .map(mapper::toDto)
-                            .filter(bookingDto -> bookingDto.getStatus().equals(Status.REJECTED))
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
                 case "APPROVED":
-                    return bookingRepository.findPageAllByUserId(requesterId, pageable).stream()
-                            .map(mapper::toDto)
-                            .filter(bookingDto -> bookingDto.getStatus().equals(Status.APPROVED))
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPageByUserIdAndStatus(requesterId, Status.valueOf(state), pageable);
+                default:
+                    throw new RuntimeException("Unknown state: UNSUPPORTED_STATUS");
+            }
+        } else {
+            throw new UserNotFoundException("Не найден пользователь с указанным id");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookingDto> findAllBookingsBefore(Long requesterId, BookingCursor cursor, int size, String state) {
+        if (cursor == null) {
+            return findAllBookingsWithParametres(requesterId, PageRequest.of(0, size), state);
+        }
+        if (userRepository.existsById(requesterId)) {
+            LocalDateTime now = LocalDateTime.now();
+            Pageable limit = PageRequest.of(0, size);
+            switch (state) {
+                case "ALL":
+                    return bookingRepository.findPageAllByUserIdBefore(requesterId,
+                            cursor.getStart(), cursor.getId(), limit);
+                case "FUTURE":
+                    return bookingRepository.findPageFutureByUserIdBefore(requesterId, now,
+                            cursor.getStart(), cursor.getId(), limit);
+                case "PAST":
+                    return bookingRepository.findPagePastByUserIdBefore(requesterId, now,
+                            cursor.getStart(), cursor.getId(), limit);
                 case "CURRENT":
-                    return bookingRepository.findPageAllByUserId(requesterId, pageable).stream()
-                            .filter(booking -> booking.getEnd().isAfter(LocalDateTime.now()) && booking.getStart().isBefore(LocalDateTime.now()))
-                            .map(mapper::toDto)
-                            .sorted(Comparator.comparing(BookingDto::getStart).reversed())
-                            .collect(Collectors.toList());
+                    return bookingRepository.findPageCurrentByUserIdBefore(requesterId, now,
+                            cursor.getStart(), cursor.getId(), limit);
+                case "WAITING":
+                case "REJECTED":
+                case "APPROVED":
+                    return bookingRepository.findPageByUserIdAndStatusBefore(requesterId, Status.valueOf(state),
+                            cursor.getStart(), cursor.getId(), limit);
                 default:
                     throw new RuntimeException("Unknown state: UNSUPPORTED_STATUS");
             }
@@ -224,6 +277,13 @@ public class BookingServiceImpl implements BookingService {
             throw new WrongDataUpdateException("Некорректное время");
         } else if (!booking.getItem().getAvailable()) {
             throw new ItemAlreadyInUseException("Предмет уже забронирован");
+        } else if (hasApprovedOverlap(booking)) {
+            throw new ItemAlreadyInUseException("Предмет уже забронирован на это время");
         }
     }
+
+    private boolean hasApprovedOverlap(Booking booking) {
+        return bookingRepository.existsOverlapping(booking.getItem().getId(), Status.APPROVED,
+                booking.getStart(), booking.getEnd());
+    }
 }
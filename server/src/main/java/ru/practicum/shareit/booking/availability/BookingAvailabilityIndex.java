@@ -0,0 +1,158 @@
+package ru.practicum.shareit.booking.availability;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.dto.BookingSlot;
+import ru.practicum.shareit.booking.dto.Status;
+import ru.practicum.shareit.booking.dto.TimeSlot;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Календари занятости предметов по бронированиям в статусах WAITING и APPROVED.
+ * Хранит только бронирования, которые еще не закончились.
+ * Календари обновляются только записями этого процесса, поэтому при нескольких экземплярах сервера
+ * с общей базой индекс выключают (shareit.booking.availability-index.enabled=false) и занятость читается из базы.
+ * Календари строятся до запуска веб-сервера, как ItemSearchIndex.
+ */
+@Component
+@Slf4j
+public class BookingAvailabilityIndex implements SmartInitializingSingleton {
+    /**
+     * Статусы бронирований, при которых предмет занят.
+     */
+    public static final Set<Status> BUSY = Collections.unmodifiableSet(EnumSet.of(Status.WAITING, Status.APPROVED));
+
+    private final boolean enabled;
+
+    private final BookingRepository bookingRepository;
+
+    private final Map<Long, ItemCalendar> calendars = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BookingAvailabilityIndex(@Value("${shareit.booking.availability-index.enabled:true}") boolean enabled,
+                                    BookingRepository bookingRepository) {
+        this.enabled = enabled;
+        this.bookingRepository = bookingRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        calendars.clear();
+        List<BookingSlot> slots = bookingRepository.findSlotsEndingAfter(BUSY, LocalDateTime.now());
+        for (BookingSlot slot : slots) {
+            calendar(slot.getItemId()).put(slot.getId(), toMillis(slot.getStart()), toMillis(slot.getEnd()));
+        }
+        log.info("Календари занятости построены: {} бронирований, {} предметов", slots.size(), calendars.size());
+    }
+
+    public void onSaved(Booking booking) {
+        if (!enabled) {
+            return;
+        }
+        Long itemId = booking.getItem().getId();
+        Long bookingId = booking.getId();
+        boolean busy = BUSY.contains(booking.getStatus());
+        long start = toMillis(booking.getStart());
+        long end = toMillis(booking.getEnd());
+        afterCommit(() -> calendars.compute(itemId, (id, calendar) -> {
+            if (busy) {
+                if (calendar == null) {
+                    calendar = new ItemCalendar();
+                }
+                calendar.prune(toMillis(LocalDateTime.now()));
+                calendar.put(bookingId, start, end);
+            } else if (calendar != null) {
+                calendar.remove(bookingId);
+            }
+            return calendar == null || calendar.isEmpty() ? null : calendar;
+        }));
+    }
+
+    public List<TimeSlot> freeSlots(Long itemId, LocalDateTime from, LocalDateTime to) {
+        ItemCalendar calendar = enabled ? calendars.get(itemId) : load(itemId, from, to);
+        if (calendar == null) {
+            return List.of(new TimeSlot(from, to));
+        }
+        return calendar.freeSlots(toMillis(from), toMillis(to)).stream()
+                .map(slot -> new TimeSlot(toDateTime(slot[0]), toDateTime(slot[1])))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Предметы из itemIds, занятые в [from, to).
+     */
+    public Set<Long> busyAmong(Collection<Long> itemIds, LocalDateTime from, LocalDateTime to) {
+        if (itemIds.isEmpty()) {
+            return Set.of();
+        }
+        if (!enabled) {
+            return bookingRepository.findItemIdsWithOverlapping(itemIds, BUSY, from, to);
+        }
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        Set<Long> busy = new HashSet<>();
+        for (Long itemId : itemIds) {
+            ItemCalendar calendar = calendars.get(itemId);
+            if (calendar != null && calendar.isBusy(fromMillis, toMillis)) {
+                busy.add(itemId);
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Календарь предмета из базы с бронированиями, пересекающими [from, to).
+     */
+    private ItemCalendar load(Long itemId, LocalDateTime from, LocalDateTime to) {
+        ItemCalendar calendar = new ItemCalendar();
+        for (BookingSlot slot : bookingRepository.findSlotsOverlapping(itemId, BUSY, from, to)) {
+            calendar.put(slot.getId(), toMillis(slot.getStart()), toMillis(slot.getEnd()));
+        }
+        return calendar;
+    }
+
+    private ItemCalendar calendar(Long itemId) {
+        return calendars.computeIfAbsent(itemId, id -> new ItemCalendar());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
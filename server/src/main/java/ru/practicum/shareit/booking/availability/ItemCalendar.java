@@ -0,0 +1,140 @@
+package ru.practicum.shareit.booking.availability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Занятые интервалы одного предмета, отсортированные по началу.
+ * maxEnds[i] - наибольший конец среди первых i + 1 интервалов, что позволяет
+ * проверять пересечение одним бинарным поиском даже для пересекающихся заявок.
+ */
+final class ItemCalendar {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    private long[] starts = new long[INITIAL_CAPACITY];
+
+    private long[] ends = new long[INITIAL_CAPACITY];
+
+    private long[] maxEnds = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    synchronized void put(long id, long start, long end) {
+        delete(id);
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            maxEnds = Arrays.copyOf(maxEnds, capacity);
+        }
+        int position = countStartsBefore(start + 1);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        System.arraycopy(starts, position, starts, position + 1, size - position);
+        System.arraycopy(ends, position, ends, position + 1, size - position);
+        ids[position] = id;
+        starts[position] = start;
+        ends[position] = end;
+        size++;
+        recomputeMaxEnds(position);
+    }
+
+    synchronized void remove(long id) {
+        delete(id);
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isBusy(long from, long to) {
+        int candidates = countStartsBefore(to);
+        return candidates > 0 && maxEnds[candidates - 1] > from;
+    }
+
+    synchronized List<long[]> freeSlots(long from, long to) {
+        List<long[]> slots = new ArrayList<>();
+        long cursor = from;
+        int candidates = countStartsBefore(to);
+        for (int i = firstEndingAfter(from); i < candidates; i++) {
+            if (starts[i] > cursor) {
+                slots.add(new long[]{cursor, starts[i]});
+            }
+            cursor = Math.max(cursor, ends[i]);
+        }
+        if (cursor < to) {
+            slots.add(new long[]{cursor, to});
+        }
+        return slots;
+    }
+
+    synchronized void prune(long now) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (ends[i] > now) {
+                ids[kept] = ids[i];
+                starts[kept] = starts[i];
+                ends[kept] = ends[i];
+                kept++;
+            }
+        }
+        if (kept != size) {
+            size = kept;
+            recomputeMaxEnds(0);
+        }
+    }
+
+    private void delete(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                System.arraycopy(starts, i + 1, starts, i, size - i - 1);
+                System.arraycopy(ends, i + 1, ends, i, size - i - 1);
+                size--;
+                recomputeMaxEnds(i);
+                return;
+            }
+        }
+    }
+
+    private void recomputeMaxEnds(int from) {
+        for (int i = from; i < size; i++) {
+            maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+    }
+
+    private int countStartsBefore(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int firstEndingAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (maxEnds[middle] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
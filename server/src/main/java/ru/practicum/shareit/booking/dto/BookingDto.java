@@ -27,4 +27,16 @@ public class BookingDto {
 
     ItemBooking item;
 
+    public BookingDto(Long id, LocalDateTime start, LocalDateTime end, Status status,
+                      Long bookerId, Long itemId, String itemName) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.status = status;
+        this.booker = new UserBooking();
+        this.booker.setId(bookerId);
+        this.item = new ItemBooking();
+        this.item.setId(itemId);
+        this.item.setName(itemName);
+    }
 }
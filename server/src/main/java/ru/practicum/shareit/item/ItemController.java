@@ -2,14 +2,19 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.dto.TimeSlot;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.search.ItemSearchStats;
 import ru.practicum.shareit.user.groups.Create;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -37,13 +42,16 @@ public class ItemController {
         return itemService.updateItem(item, ownerId, itemId);
     }
 
+    /**
+     * На If-None-Match с текущим ETag отвечает 304 без загрузки предмета, отзывов и бронирований.
+     */
     @GetMapping("/{itemId}")
-    public ItemDto getItem(@PathVariable Long itemId, @RequestHeader("X-Sharer-User-Id") Long requesterId) {
-        if (itemService.getItemsByOwnerId(requesterId).contains(itemService.getItemById(itemId))) {
-            return bookingService.setLastAndNextBooking(itemService.getItemById(itemId));
-        } else {
-            return itemService.getItemById(itemId);
+    public ItemDto getItem(@PathVariable Long itemId, @RequestHeader("X-Sharer-User-Id") Long requesterId,
+                           WebRequest request) {
+        if (request.checkNotModified(itemService.getItemETag(itemId, requesterId))) {
+            return null;
         }
+        return itemService.getItemForRequester(itemId, requesterId);
     }
 
     @GetMapping("/search")
@@ -54,13 +62,30 @@ public class ItemController {
         return itemService.searchItem(text, ownerId, from, size);
     }
 
+    @GetMapping("/search/free")
+    public List<ItemDto> searchFreeItems(@RequestParam(name = "text") String text,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                         @RequestParam(value = "from", defaultValue = "0") Integer from,
+                                         @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        return itemService.searchFreeItems(text, start, end, from, size);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public List<TimeSlot> getFreeSlots(@PathVariable Long itemId,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return bookingService.getFreeSlots(itemId, from, to);
+    }
+
+    @GetMapping("/search/stats")
+    public ItemSearchStats getSearchStats() {
+        return itemService.getSearchStats();
+    }
+
     @GetMapping
     public List<ItemDto> getItemsByUserId(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
-        List<ItemDto> dtos = itemService.getItemsByOwnerId(ownerId);
-        for (ItemDto itemDto : dtos) {
-            bookingService.setLastAndNextBooking(itemDto);
-        }
-        return dtos;
+        return bookingService.setLastAndNextBookings(itemService.getItemsByOwnerId(ownerId));
     }
 
     @PostMapping("/{itemId}/comment")
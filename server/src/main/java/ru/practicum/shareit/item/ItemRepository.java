@@ -2,17 +2,60 @@ package ru.practicum.shareit.item;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.Status;
+import ru.practicum.shareit.item.dto.ItemVersion;
 import ru.practicum.shareit.item.model.Item;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
     @Query(" select i from Item i " +
-            "where upper(i.name) like upper(concat('%', ?1, '%')) " +
-            " or upper(i.description) like upper(concat('%', ?1, '%'))")
+            "where i.available = true " +
+            " and (upper(i.name) like upper(concat('%', ?1, '%')) " +
+            " or upper(i.description) like upper(concat('%', ?1, '%'))) " +
+            "order by case when upper(i.name) like upper(concat('%', ?1, '%')) then 0 else 1 end, i.id")
     List<Item> search(String text, Pageable pageable);
 
+    /**
+     * Как search, но без предметов с бронированием в статусах busyStatuses, пересекающим [start, end).
+     */
+    @Query(" select i from Item i " +
+            "where i.available = true " +
+            " and (upper(i.name) like upper(concat('%', ?1, '%')) " +
+            " or upper(i.description) like upper(concat('%', ?1, '%'))) " +
+            " and not exists (select b.id from Booking b where b.item = i and b.status in ?2 " +
+            " and b.start < ?4 and b.end > ?3) " +
+            "order by case when upper(i.name) like upper(concat('%', ?1, '%')) then 0 else 1 end, i.id")
+    List<Item> searchFree(String text, Collection<Status> busyStatuses, LocalDateTime start, LocalDateTime end,
+                          Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Item i where i.id = ?1")
+    Optional<Item> findByIdForUpdate(Long id);
+
+    @Query("select i from Item i left join fetch i.comments c left join fetch c.user where i.id = ?1")
+    Optional<Item> findByIdWithComments(Long id);
+
+    @Query("select i.version as version, i.owner.id as ownerId from Item i where i.id = ?1")
+    Optional<ItemVersion> findVersionById(Long id);
+
+    /**
+     * Имя автора входит в отзывы предмета, поэтому при его смене меняется и версия предмета.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.version = i.version + 1 " +
+            "where i.id in (select c.item.id from Comment c where c.user.id = ?1)")
+    int incrementVersionCommentedBy(Long userId);
+
     @Query(value = "select user_id from items where id = ?1",
         nativeQuery = true)
     Long getOwnerId(Long id);
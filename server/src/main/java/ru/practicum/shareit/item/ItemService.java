@@ -1,7 +1,9 @@
 package ru.practicum.shareit.item;
 
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.search.ItemSearchStats;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
@@ -9,9 +11,21 @@ public interface ItemService {
 
     List<ItemDto> searchItem(String text, Long ownerId, Integer from, Integer size);
 
+    ItemSearchStats getSearchStats();
+
+    List<ItemDto> searchFreeItems(String text, LocalDateTime start, LocalDateTime end, Integer from, Integer size);
+
     ItemDto updateItem(ItemDto item, Long requesterId, Long itemId);
 
     ItemDto getItemById(Long itemId);
 
+    ItemDto getItemForRequester(Long itemId, Long requesterId);
+
+    /**
+     * ETag ответа getItemForRequester: версия предмета, а для владельца еще и его последнее и следующее бронирования.
+     * ETag слабый: он не меняется от сжатия ответа, а Tomcat не сжимает ответы с сильным ETag.
+     */
+    String getItemETag(Long itemId, Long requesterId);
+
     List<ItemDto> getItemsByOwnerId(Long id);
 }
@@ -4,27 +4,39 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.availability.BookingAvailabilityIndex;
 import ru.practicum.shareit.exceptions.IncorrectItemException;
 import ru.practicum.shareit.exceptions.ItemNotFoundException;
 import ru.practicum.shareit.exceptions.RequestNotFoundException;
 import ru.practicum.shareit.exceptions.UserNotFoundException;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemVersion;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemSearchStats;
 import ru.practicum.shareit.request.RequestRepository;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+    private static final int FREE_SEARCH_BATCH = 100;
 
     private final ItemMapper mapper;
 
@@ -37,6 +49,12 @@ public class ItemServiceImpl implements ItemService {
     @Autowired
     private final RequestRepository requestRepository;
 
+    private final ItemSearchIndex searchIndex;
+
+    private final BookingService bookingService;
+
+    private final BookingAvailabilityIndex availabilityIndex;
+
     @Override
     public ItemDto addItem(ItemDto itemDto, Long requesterId) {
         Item item = mapper.toEntity(itemDto);
@@ -49,7 +67,9 @@ public class ItemServiceImpl implements ItemService {
         if (userRepository.findById(requesterId).isPresent()) {
             userRepository.findById(requesterId).get().getItems().add(item);
             item.setOwner(userRepository.findById(requesterId).get());
-            return mapper.toDto(itemRepository.save(item));
+            Item saved = itemRepository.save(item);
+            searchIndex.index(saved);
+            return mapper.toDto(saved);
         } else {
             throw new UserNotFoundException("Не найден владелец");
         }
@@ -61,13 +81,82 @@ public class ItemServiceImpl implements ItemService {
         if (text.isBlank()) {
             return Collections.emptyList(); //постман при пустом тексте просит вернуть пустую коллекцию...
         }
-        List<ItemDto> searchResult = new ArrayList<>();
-        for (Item item : itemRepository.search(text, PageRequest.of(from / size, size))) {
-            if (item.getAvailable()) {
-                searchResult.add(mapper.toDto(item));
+        if (searchIndex.isEnabled()) {
+            return searchInIndex(text, from, size);
+        }
+        return itemRepository.search(text, PageRequest.of(from / size, size)).stream()
+                .map(mapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ItemDto> searchFreeItems(String text, LocalDateTime start, LocalDateTime end,
+                                         Integer from, Integer size) {
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        if (text.isBlank()) {
+            return Collections.emptyList();
+        }
+        if (searchIndex.isEnabled()) {
+            return searchFreeInIndex(text, start, end, from, size);
+        }
+        return itemRepository.searchFree(text, BookingAvailabilityIndex.BUSY, start, end,
+                        PageRequest.of(from / size, size)).stream()
+                .map(mapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public ItemSearchStats getSearchStats() {
+        return searchIndex.getStats();
+    }
+
+    private List<ItemDto> searchInIndex(String text, Integer from, Integer size) {
+        return toDtos(searchIndex.search(text, from / size * size, size));
+    }
+
+    /**
+     * Найденные индексом id читаются один раз и проверяются на занятость пачками, пока не наберется
+     * страница свободных. Страница та же, что в SQL: PageRequest.of(from / size, size).
+     */
+    private List<ItemDto> searchFreeInIndex(String text, LocalDateTime start, LocalDateTime end,
+                                            Integer from, Integer size) {
+        int skip = from / size * size;
+        int batch = Math.max(size, FREE_SEARCH_BATCH);
+        List<Long> found = searchIndex.search(text);
+        List<Long> free = new ArrayList<>(size);
+        for (int offset = 0; offset < found.size() && free.size() < size; offset += batch) {
+            List<Long> candidates = found.subList(offset, Math.min(found.size(), offset + batch));
+            Set<Long> busy = availabilityIndex.busyAmong(candidates, start, end);
+            for (Long id : candidates) {
+                if (busy.contains(id)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else if (free.size() < size) {
+                    free.add(id);
+                }
             }
         }
-        return searchResult;
+        return toDtos(free);
+    }
+
+    /**
+     * Предметы в порядке ids.
+     */
+    private List<ItemDto> toDtos(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Item> items = itemRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return ids.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
+                .map(mapper::toDto)
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -86,7 +175,7 @@ public class ItemServiceImpl implements ItemService {
                             if (item.getDescription() != null) {
                                 item1.setDescription(item.getDescription());
                             }
-                            itemRepository.save(item1);
+                            searchIndex.index(itemRepository.save(item1));
                         });
                 return mapper.toDto(itemRepository.findById(itemId).get());
             }
@@ -104,6 +193,35 @@ public class ItemServiceImpl implements ItemService {
 
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ItemDto getItemForRequester(Long itemId, Long requesterId) {
+        if (!userRepository.existsById(requesterId)) {
+            throw new UserNotFoundException("Не найден пользователь");
+        }
+        Item item = itemRepository.findByIdWithComments(itemId)
+                .orElseThrow(() -> new ItemNotFoundException("Не найден предмет с указанным id"));
+        ItemDto itemDto = mapper.toDto(item);
+        if (item.getOwner() != null && requesterId.equals(item.getOwner().getId())) {
+            bookingService.setLastAndNextBooking(itemDto);
+        }
+        return itemDto;
+    }
+
+    @Override
+    public String getItemETag(Long itemId, Long requesterId) {
+        if (!userRepository.existsById(requesterId)) {
+            throw new UserNotFoundException("Не найден пользователь");
+        }
+        ItemVersion version = itemRepository.findVersionById(itemId)
+                .orElseThrow(() -> new ItemNotFoundException("Не найден предмет с указанным id"));
+        String etag = "item-" + itemId + "-" + version.getVersion();
+        if (requesterId.equals(version.getOwnerId())) {
+            etag += "-" + bookingService.getLastAndNextBookingStamp(itemId);
+        }
+        return "W/\"" + etag + "\"";
+    }
+
     @Override
     public List<ItemDto> getItemsByOwnerId(Long id) {
         List<ItemDto> items = new ArrayList<>();
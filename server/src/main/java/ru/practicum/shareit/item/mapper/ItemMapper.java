@@ -38,5 +38,6 @@ public interface ItemMapper {
     @Mapping(target = "name", source = "name")
     @Mapping(target = "description", source = "description")
     @Mapping(target = "available", source = "available")
+    @Mapping(target = "version", ignore = true)
     Item toEntity(ItemDto itemDto);
 }
@@ -17,7 +17,9 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "items")
+@Table(name = "items", indexes = {
+        @Index(name = "idx_items_owner", columnList = "owner_id")
+})
 public class Item {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -42,4 +44,11 @@ public class Item {
 
     @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     User owner;
+
+    /**
+     * Растет при каждом изменении предмета и его отзывов, из нее строится ETag.
+     */
+    @Version
+    @Column(name = "version")
+    Long version;
 }
@@ -0,0 +1,294 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс триграмм названия и описания предметов, повторяет выдачу ItemRepository.search:
+ * доступные предметы, у которых название или описание содержит весь запрос как подстроку без учета регистра,
+ * сначала совпавшие по названию, внутри групп по id. Кандидаты - пересечение списков триграмм запроса,
+ * каждый проверяется поиском подстроки. Запрос короче триграммы проверяется по всем доступным предметам.
+ * Регистр приводится String.toUpperCase(Locale.ROOT), для редких символов он может отличаться от upper() базы.
+ * Индекс строится после создания бинов, до запуска веб-сервера, поэтому поиск не видит пустой индекс.
+ */
+@Component
+@Slf4j
+public class ItemSearchIndex implements SmartInitializingSingleton {
+    private static final int GRAM = 3;
+
+    private final boolean enabled;
+
+    private final ItemRepository itemRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, LongPostingList> postings = new HashMap<>();
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private final LongPostingList available = new LongPostingList();
+
+    private final LongAdder queries = new LongAdder();
+
+    private final LongAdder queryNanos = new LongAdder();
+
+    private final AtomicLong maxQueryNanos = new AtomicLong();
+
+    private volatile long lastRebuildMillis;
+
+    @Autowired
+    public ItemSearchIndex(@Value("${shareit.search.in-memory-index:false}") boolean enabled,
+                           ItemRepository itemRepository) {
+        this.enabled = enabled;
+        this.itemRepository = itemRepository;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Предметы читаются под блокировкой записи: изменение, закоммиченное после чтения, применится
+     * после перестроения, а не будет стерто им.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int itemCount;
+        lock.writeLock().lock();
+        try {
+            List<Item> items = itemRepository.findAll();
+            postings.clear();
+            entries.clear();
+            available.clear();
+            for (Item item : items) {
+                add(item.getId(), entry(item), Boolean.TRUE.equals(item.getAvailable()));
+            }
+            itemCount = items.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastRebuildMillis = System.currentTimeMillis() - started;
+        log.info("Поисковый индекс построен: {} предметов, {} триграмм за {} мс",
+                itemCount, postings.size(), lastRebuildMillis);
+    }
+
+    /**
+     * Применяется после коммита транзакции, чтобы индекс не показывал откаченные изменения.
+     */
+    public void index(Item item) {
+        if (!enabled) {
+            return;
+        }
+        Long itemId = item.getId();
+        Entry entry = entry(item);
+        boolean isAvailable = Boolean.TRUE.equals(item.getAvailable());
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                delete(itemId);
+                add(itemId, entry, isAvailable);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(Long itemId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                delete(itemId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Все id найденных предметов в порядке выдачи.
+     */
+    public List<Long> search(String text) {
+        return search(text, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Id найденных предметов с offset-го, не больше limit.
+     */
+    public List<Long> search(String text, int offset, int limit) {
+        long started = System.nanoTime();
+        String query = normalize(text);
+        lock.readLock().lock();
+        try {
+            long[] candidates = candidates(query);
+            List<Long> byName = new ArrayList<>();
+            List<Long> byDescription = new ArrayList<>();
+            for (int i = 0; i < candidates.length && byName.size() - offset < limit; i++) {
+                long id = candidates[i];
+                Entry entry = entries.get(id);
+                if (entry == null || !available.contains(id)) {
+                    continue;
+                }
+                if (entry.name.contains(query)) {
+                    byName.add(id);
+                } else if (entry.description.contains(query)) {
+                    byDescription.add(id);
+                }
+            }
+            byName.addAll(byDescription);
+            if (offset >= byName.size()) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(byName.subList(offset, offset + Math.min(byName.size() - offset, limit)));
+        } finally {
+            lock.readLock().unlock();
+            long elapsed = System.nanoTime() - started;
+            queries.increment();
+            queryNanos.add(elapsed);
+            maxQueryNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    public ItemSearchStats getStats() {
+        lock.readLock().lock();
+        try {
+            long postingCount = 0;
+            long memory = 0;
+            for (Map.Entry<String, LongPostingList> entry : postings.entrySet()) {
+                postingCount += entry.getValue().size();
+                memory += estimatedSize(entry.getKey()) + estimatedSize(entry.getValue());
+            }
+            for (Entry entry : entries.values()) {
+                memory += 24 + estimatedSize(entry.name) + estimatedSize(entry.description);
+            }
+            memory += estimatedSize(available);
+            long count = queries.sum();
+            return new ItemSearchStats(enabled, entries.size(), postings.size(), postingCount, memory, count,
+                    count == 0 ? 0 : queryNanos.sum() / count / 1000, maxQueryNanos.get() / 1000, lastRebuildMillis);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id, отсортированные по возрастанию, среди которых все предметы, содержащие query.
+     */
+    private long[] candidates(String query) {
+        if (query.length() < GRAM) {
+            return available.toArray();
+        }
+        List<LongPostingList> lists = new ArrayList<>();
+        for (String gram : grams(query)) {
+            LongPostingList list = postings.get(gram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(LongPostingList::size));
+        long[] matches = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && matches.length > 0; i++) {
+            matches = LongPostingList.intersect(matches, lists.get(i).toArray());
+        }
+        return matches;
+    }
+
+    private void add(Long itemId, Entry entry, boolean isAvailable) {
+        Set<String> grams = grams(entry.name);
+        grams.addAll(grams(entry.description));
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new LongPostingList()).add(itemId);
+        }
+        entries.put(itemId, entry);
+        if (isAvailable) {
+            available.add(itemId);
+        }
+    }
+
+    private void delete(Long itemId) {
+        Entry entry = entries.remove(itemId);
+        if (entry == null) {
+            return;
+        }
+        Set<String> grams = grams(entry.name);
+        grams.addAll(grams(entry.description));
+        for (String gram : grams) {
+            LongPostingList list = postings.get(gram);
+            if (list != null && list.remove(itemId) && list.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+        available.remove(itemId);
+    }
+
+    private static Entry entry(Item item) {
+        return new Entry(normalize(item.getName()), normalize(item.getDescription()));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toUpperCase(Locale.ROOT);
+    }
+
+    static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static long estimatedSize(String token) {
+        return 40 + 2L * token.length() + 40;
+    }
+
+    private static long estimatedSize(LongPostingList list) {
+        return 24 + 16 + 8L * list.capacity();
+    }
+
+    private static final class Entry {
+        private final String name;
+
+        private final String description;
+
+        private Entry(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+    }
+}
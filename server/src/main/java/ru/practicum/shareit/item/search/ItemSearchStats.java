@@ -0,0 +1,29 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+public class ItemSearchStats {
+    boolean enabled;
+
+    int items;
+
+    int tokens;
+
+    long postings;
+
+    long estimatedMemoryBytes;
+
+    long queries;
+
+    long averageQueryMicros;
+
+    long maxQueryMicros;
+
+    long lastRebuildMillis;
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import javax.validation.Valid;
@@ -26,21 +27,34 @@ public class ItemRequestController {
     }
 
     @GetMapping
-    public List<ItemRequestDto> getRequestsById(@RequestHeader("X-Sharer-User-Id") Long requesterId) {
+    public List<ItemRequestDto> getRequestsById(@RequestHeader("X-Sharer-User-Id") Long requesterId,
+                                                WebRequest request) {
+        if (request.checkNotModified(itemRequestService.getOwnETag(requesterId))) {
+            return null;
+        }
         return itemRequestService.getOwnById(requesterId);
     }
 
     @GetMapping("/{requestId}")
     public ItemRequestDto getRequestWithItems(@RequestHeader("X-Sharer-User-Id") Long requesterId,
-                                              @PathVariable Long requestId) {
+                                              @PathVariable Long requestId,
+                                              WebRequest request) {
+        if (request.checkNotModified(itemRequestService.getRequestETag(requesterId, requestId))) {
+            return null;
+        }
         return itemRequestService.getRequestWithItems(requesterId, requestId);
     }
 
     @GetMapping("/all")
     public List<ItemRequestDto> getAll(@RequestHeader("X-Sharer-User-Id") Long requesterId,
                                        @RequestParam Integer from,
-                                       @RequestParam Integer size) {
-        return itemRequestService.gellAllRequestsWithParams(PageRequest.of(from / size, size, Sort.by("created")), requesterId);
+                                       @RequestParam Integer size,
+                                       WebRequest request) {
+        PageRequest page = PageRequest.of(from / size, size, Sort.by("created"));
+        if (request.checkNotModified(itemRequestService.getAllETag(page, requesterId))) {
+            return null;
+        }
+        return itemRequestService.gellAllRequestsWithParams(page, requesterId);
     }
 
 }
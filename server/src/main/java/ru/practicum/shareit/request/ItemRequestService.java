@@ -14,4 +14,14 @@ public interface ItemRequestService {
     ItemRequestDto getRequestWithItems(Long requesterId, Long requestId);
 
     List<ItemRequestDto> gellAllRequestsWithParams(Pageable pageable, Long requesteId);
+
+    /**
+     * ETag ответов по запросам строятся из версий запросов и предметов, добавленных по ним,
+     * без загрузки самих запросов и предметов. ETag слабые, как и у предметов.
+     */
+    String getOwnETag(Long requesterId);
+
+    String getRequestETag(Long requesterId, Long requestId);
+
+    String getAllETag(Pageable pageable, Long requesterId);
 }
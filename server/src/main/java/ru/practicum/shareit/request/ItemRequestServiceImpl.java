@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import ru.practicum.shareit.exceptions.RequestNotFoundException;
 import ru.practicum.shareit.exceptions.UserNotFoundException;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.RequestVersion;
 import ru.practicum.shareit.request.mapper.RequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.UserRepository;
@@ -50,4 +51,54 @@ public class ItemRequestServiceImpl implements ItemRequestService {
                 .map(requestMapper::toDto)
                 .collect(Collectors.toList());
     }
+
+    public String getOwnETag(Long requesterId) {
+        if (!userRepository.existsById(requesterId)) {
+            throw new UserNotFoundException("Не найден пользователь");
+        }
+        return stamp("requests-" + requesterId, List.of(), requestRepository.findVersionsByRequesterId(requesterId));
+    }
+
+    public String getRequestETag(Long requesterId, Long requestId) {
+        if (!userRepository.existsById(requesterId)) {
+            throw new UserNotFoundException("Не найден пользователь с указанным id");
+        }
+        List<RequestVersion> versions = requestRepository.findVersionsByIds(List.of(requestId));
+        if (versions.isEmpty()) {
+            throw new RequestNotFoundException("Не найден запрос");
+        }
+        return stamp("request-" + requestId, List.of(), versions);
+    }
+
+    public String getAllETag(Pageable pageable, Long requesterId) {
+        List<Long> ids = requestRepository.findAllIds(requesterId, pageable);
+        List<RequestVersion> versions = ids.isEmpty() ? List.of() : requestRepository.findVersionsByIds(ids);
+        return stamp("requests-all", ids, versions);
+    }
+
+    /**
+     * FNV-1a от порядка запросов на странице и всех версий.
+     */
+    private static String stamp(String prefix, List<Long> order, List<RequestVersion> versions) {
+        long hash = 0xcbf29ce484222325L;
+        for (Long id : order) {
+            hash = mix(hash, id);
+        }
+        for (RequestVersion version : versions) {
+            hash = mix(hash, version.getId());
+            hash = mix(hash, version.getVersion());
+            hash = mix(hash, version.getItemId());
+            hash = mix(hash, version.getItemVersion());
+        }
+        return "W/\"" + prefix + "-" + versions.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    private static long mix(long hash, Long value) {
+        long bits = value == null ? -1 : value;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash ^= (bits >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
 }
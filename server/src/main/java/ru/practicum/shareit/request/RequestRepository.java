@@ -3,14 +3,30 @@ package ru.practicum.shareit.request;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.request.dto.RequestVersion;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface RequestRepository extends JpaRepository<ItemRequest, Long> {
+    String VERSIONS = "select r.id as id, r.version as version, i.id as itemId, i.version as itemVersion " +
+            "from ItemRequest r left join r.items i ";
+
+    String VERSIONS_ORDER = " order by r.id, i.id";
+
     @Query(nativeQuery = true, value = "select * from requests where user_id = ?1")
     List<ItemRequest> findAllByRequesterId(Long id);
 
     @Query(nativeQuery = true, value = "select * from requests where id <> ?1")
     List<ItemRequest> findAll(Long requesterId,Pageable pageable);
+
+    @Query(nativeQuery = true, value = "select id from requests where id <> ?1")
+    List<Long> findAllIds(Long requesterId, Pageable pageable);
+
+    @Query(VERSIONS + "where r.id in ?1" + VERSIONS_ORDER)
+    List<RequestVersion> findVersionsByIds(Collection<Long> ids);
+
+    @Query(VERSIONS + "where r.requester.id = ?1" + VERSIONS_ORDER)
+    List<RequestVersion> findVersionsByRequesterId(Long requesterId);
 }
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.request.dto;
+
+/**
+ * Версия запроса и одного из предметов, добавленных по нему (itemId null, если предметов нет).
+ */
+public interface RequestVersion {
+    Long getId();
+
+    Long getVersion();
+
+    Long getItemId();
+
+    Long getItemVersion();
+}
@@ -45,6 +45,9 @@ public interface RequestMapper {
 
     Set<ItemDto> toSetDto(Set<Item> itemsSet);
 
+    @Mapping(target = "version", ignore = true)
+    Item toItem(ItemDto itemDto);
+
     @Mapping(target = "description", source = "description")
     @Mapping(target = "id", source = "id")
     @Mapping(target = "created", source = "created")
@@ -54,6 +57,7 @@ public interface RequestMapper {
     @Mapping(target = "description", source = "description")
     @Mapping(target = "id", source = "id")
     @Mapping(target = "created", source = "created")
+    @Mapping(target = "version", ignore = true)
     ItemRequest toEntity(ItemRequestDto itemRequestDto);
 
     List<ItemRequestDto> toDtos(List<ItemRequest> requests);
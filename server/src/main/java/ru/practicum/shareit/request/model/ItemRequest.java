@@ -31,4 +31,8 @@ public class ItemRequest {
 
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "request")
     Set<Item> items;
+
+    @Version
+    @Column(name = "version")
+    Long version;
 }
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.user.groups.Create;
 import ru.practicum.shareit.user.model.User;
 
@@ -25,7 +26,10 @@ public class UserController {
     }
 
     @GetMapping("/{userId}")
-    public User getUserById(@PathVariable Long userId) {
+    public User getUserById(@PathVariable Long userId, WebRequest request) {
+        if (request.checkNotModified(userService.getUserETag(userId))) {
+            return null;
+        }
         return userService.getUser(userId);
     }
 
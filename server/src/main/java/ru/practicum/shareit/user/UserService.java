@@ -12,6 +12,8 @@ public interface UserService {
 
     User getUser(Long id);
 
+    String getUserETag(Long id);
+
     User patchUser(User user, Long id);
 
     ResponseEntity<String> deleteUser(Long id);
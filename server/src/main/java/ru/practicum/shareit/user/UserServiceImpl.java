@@ -6,10 +6,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import ru.practicum.shareit.exceptions.UserNotFoundException;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.user.model.User;
 
 import javax.transaction.Transactional;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
@@ -17,6 +21,10 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private final UserRepository userRepository;
 
+    private final ItemSearchIndex searchIndex;
+
+    private final ItemRepository itemRepository;
+
     @Override
     @Transactional
     public User postUser(User user) {
@@ -37,13 +45,20 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    @Override
+    public String getUserETag(Long id) {
+        return "W/\"user-" + id + "-" + userRepository.findVersionById(id)
+                .orElseThrow(() -> new UserNotFoundException("Пользователь с указанным id не найден")) + "\"";
+    }
+
     @Override
     public User patchUser(User user, Long id) {
         userRepository
                 .findById(id)
                 .ifPresent(user1 -> {
-                    if (user.getName() != null) {
+                    if (user.getName() != null && !user.getName().equals(user1.getName())) {
                         user1.setName(user.getName());
+                        itemRepository.incrementVersionCommentedBy(id);
                     }
                     if (user.getEmail() != null) {
                         user1.setEmail(user.getEmail());
@@ -55,7 +70,11 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public ResponseEntity<String> deleteUser(Long id) {
+        List<Long> itemIds = userRepository.findById(id)
+                .map(user -> user.getItems().stream().map(Item::getId).collect(Collectors.toList()))
+                .orElse(List.of());
         userRepository.deleteById(id);
+        itemIds.forEach(searchIndex::remove);
         return new ResponseEntity<String>(HttpStatus.OK);
     }
 }
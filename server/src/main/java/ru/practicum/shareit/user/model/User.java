@@ -1,8 +1,11 @@
 package ru.practicum.shareit.user.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.groups.Create;
 
@@ -30,7 +33,16 @@ public class User {
     @Column(name = "email", unique = true)
     private String email;
 
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "user_id")
     Set<Item> items = new HashSet<>();
+
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
@@ -0,0 +1,64 @@
+-- Схема для нескольких экземпляров сервера с общей базой (профиль cluster): ничего не удаляет,
+-- экземпляры, стартующие одновременно, выполняют скрипт по очереди под advisory lock.
+SELECT pg_advisory_lock(7303105);
+
+CREATE TABLE IF NOT EXISTS users (
+    id      int8 GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email   varchar(255) CONSTRAINT uk_users_email UNIQUE,
+    name    varchar(255),
+    version int8
+);
+
+CREATE TABLE IF NOT EXISTS requests (
+    id         int8 GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created    timestamp,
+    decription varchar(255),
+    version    int8,
+    user_id    int8 REFERENCES users
+);
+
+CREATE TABLE IF NOT EXISTS items (
+    id          int8 GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    available   boolean,
+    description varchar(255),
+    name        varchar(255),
+    version     int8,
+    owner_id    int8 REFERENCES users,
+    request_id  int8 REFERENCES requests,
+    user_id     int8 REFERENCES users
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id         int8 GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    end_date   timestamp,
+    start_date timestamp,
+    status     varchar(255),
+    user_id    int8 REFERENCES users,
+    item_id    int8 REFERENCES items
+);
+
+CREATE TABLE IF NOT EXISTS comments (
+    id               int8 GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    publication_date timestamp,
+    text             varchar(255),
+    item_id          int8 REFERENCES items,
+    user_id          int8 REFERENCES users
+);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (user_id, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_start ON bookings (item_id, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_items_owner ON items (owner_id);
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_items_name_trgm ON items USING gin (upper(name) gin_trgm_ops) WHERE available;
+CREATE INDEX IF NOT EXISTS idx_items_description_trgm ON items USING gin (upper(description) gin_trgm_ops) WHERE available;
+
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+DO 'BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''bookings_approved_no_overlap'') THEN
+        ALTER TABLE bookings ADD CONSTRAINT bookings_approved_no_overlap EXCLUDE USING gist
+            (item_id WITH =, tsrange(start_date, end_date) WITH &&) WHERE (status = ''APPROVED'');
+    END IF;
+END';
+
+SELECT pg_advisory_unlock(7303105);
@@ -0,0 +1,3 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_items_name_trgm ON items USING gin (upper(name) gin_trgm_ops) WHERE available;
+CREATE INDEX IF NOT EXISTS idx_items_description_trgm ON items USING gin (upper(description) gin_trgm_ops) WHERE available;
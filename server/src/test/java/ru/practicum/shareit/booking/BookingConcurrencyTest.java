@@ -0,0 +1,224 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingAccept;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.exceptions.IncorrectBookingException;
+import ru.practicum.shareit.exceptions.ItemAlreadyInUseException;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.user.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Одновременные подтверждения и создания бронирований одного предмета на одно время:
+ * подтвержденным должно остаться ровно одно. Бронирования другого предмета при этом не ждут.
+ */
+@SpringBootTest
+class BookingConcurrencyTest {
+    private static final int THREADS = 8;
+
+    private static final String OVERLAP_MESSAGE = "Предмет уже забронирован на это время";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private BookingFixture fixture;
+
+    @BeforeEach
+    void createFixture() {
+        fixture = new BookingFixture(userService, itemService, transactionTemplate);
+    }
+
+    @Test
+    void concurrentApprovalsOfOverlappingBookingsApproveOnlyOne() throws Exception {
+        Long ownerId = fixture.newUser();
+        Long itemId = fixture.newItem(ownerId);
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusHours(2);
+        List<Long> bookingIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            bookingIds.add(bookingService.createBooking(new BookingAccept(itemId, start, end), fixture.newUser())
+                    .getId());
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (Long bookingId : bookingIds) {
+            tasks.add(() -> bookingService.patchBooking(ownerId, true, bookingId));
+        }
+        int succeeded = runConcurrently(tasks);
+
+        assertEquals(1, succeeded);
+        Map<Status, Long> statuses = statusesOf(itemId);
+        assertEquals(1L, statuses.get(Status.APPROVED));
+        assertEquals(THREADS - 1L, statuses.get(Status.WAITING));
+    }
+
+    @Test
+    void concurrentApprovalsAndCreatesForSameSlotApproveOnlyOne() throws Exception {
+        Long ownerId = fixture.newUser();
+        Long itemId = fixture.newItem(ownerId);
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusHours(2);
+        List<Long> bookingIds = new ArrayList<>();
+        List<Long> lateBookers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            bookingIds.add(bookingService.createBooking(new BookingAccept(itemId, start, end), fixture.newUser())
+                    .getId());
+            lateBookers.add(fixture.newUser());
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Long bookingId = bookingIds.get(i);
+            Long bookerId = lateBookers.get(i);
+            tasks.add(() -> bookingService.patchBooking(ownerId, true, bookingId));
+            tasks.add(() -> bookingService.createBooking(new BookingAccept(itemId, start.plusMinutes(30),
+                    end.plusMinutes(30)), bookerId));
+        }
+        int succeeded = runConcurrently(tasks);
+
+        Map<Status, Long> statuses = statusesOf(itemId);
+        assertEquals(1L, statuses.get(Status.APPROVED));
+        assertTrue(statuses.get(Status.WAITING) >= THREADS - 1L);
+        long lateCreated = statuses.get(Status.APPROVED) + statuses.get(Status.WAITING) - THREADS;
+        assertEquals(1 + lateCreated, succeeded);
+    }
+
+    @Test
+    void lockedItemDoesNotBlockBookingsOfAnotherItem() throws Exception {
+        Long ownerId = fixture.newUser();
+        Long lockedItemId = fixture.newItem(ownerId);
+        Long otherItemId = fixture.newItem(ownerId);
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Long lockedBookingId = bookingService.createBooking(new BookingAccept(lockedItemId, start, start.plusHours(2)),
+                fixture.newUser()).getId();
+        Long otherBookingId = bookingService.createBooking(new BookingAccept(otherItemId, start, start.plusHours(2)),
+                fixture.newUser()).getId();
+        Long otherBookerId = fixture.newUser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<?> holder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                itemRepository.findByIdForUpdate(lockedItemId);
+                locked.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            BookingDto approved = bookingService.patchBooking(ownerId, true, otherBookingId);
+            BookingDto created = bookingService.createBooking(new BookingAccept(otherItemId,
+                    start.plusDays(1), start.plusDays(1).plusHours(2)), otherBookerId);
+            assertEquals(Status.APPROVED, approved.getStatus());
+            assertEquals(Status.WAITING, created.getStatus());
+
+            Future<BookingDto> blocked = executor.submit(() -> bookingService.patchBooking(ownerId, true,
+                    lockedBookingId));
+            Thread.sleep(200);
+            assertFalse(blocked.isDone());
+
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            assertEquals(Status.APPROVED, blocked.get(10, TimeUnit.SECONDS).getStatus());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Запускает задачи одновременно и возвращает число завершившихся без исключения. Проиграть задача
+     * может только из-за занятого предмета или таймаута блокировки, любая другая ошибка валит тест.
+     */
+    private static int runConcurrently(List<Callable<Object>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch ready = new CountDownLatch(tasks.size());
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (Callable<Object> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return task.call();
+                }));
+            }
+            ready.await();
+            go.countDown();
+            int succeeded = 0;
+            for (Future<Object> future : futures) {
+                try {
+                    future.get(30, TimeUnit.SECONDS);
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    assertLostToOverlap(e.getCause());
+                }
+            }
+            return succeeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * createBooking возвращает отказ проверки бронирования как IncorrectBookingException с тем же сообщением.
+     */
+    private static void assertLostToOverlap(Throwable e) {
+        boolean itemInUse = e instanceof ItemAlreadyInUseException
+                || e instanceof IncorrectBookingException && OVERLAP_MESSAGE.equals(e.getMessage());
+        if (!itemInUse && !(e instanceof PessimisticLockingFailureException)) {
+            throw new AssertionError("Неожиданная ошибка конкурентного бронирования", e);
+        }
+    }
+
+    private Map<Status, Long> statusesOf(Long itemId) {
+        return bookingRepository.findAll().stream()
+                .filter(booking -> booking.getItem().getId().equals(itemId))
+                .map(Booking::getStatus)
+                .collect(Collectors.groupingBy(status -> status, Collectors.counting()));
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.UserService;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пользователи и предметы для тестов бронирований. Email уникальны в пределах JVM, база общая для всех тестов.
+ */
+class BookingFixture {
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    private final UserService userService;
+
+    private final ItemService itemService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    BookingFixture(UserService userService, ItemService itemService, TransactionTemplate transactionTemplate) {
+        this.userService = userService;
+        this.itemService = itemService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    Long newUser() {
+        int n = USERS.incrementAndGet();
+        User user = new User();
+        user.setName("user" + n);
+        user.setEmail("user" + n + "@booking.test");
+        return userService.postUser(user).getId();
+    }
+
+    Long newItem(Long ownerId) {
+        ItemDto item = new ItemDto();
+        item.setName("Дрель");
+        item.setDescription("Дрель ударная");
+        item.setAvailable(true);
+        return transactionTemplate.execute(status -> itemService.addItem(item, ownerId).getId());
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingAccept;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.user.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Страница бронирований читается фиксированным числом запросов независимо от размера страницы:
+ * бронирующий и предмет загружаются вместе с бронированием, а не отдельным запросом на строку.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BookingPageQueriesTest {
+    private static final int BOOKINGS = 12;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private BookingFixture fixture;
+
+    private Long ownerId;
+
+    private Long bookerId;
+
+    @BeforeEach
+    void createBookings() {
+        fixture = new BookingFixture(userService, itemService, transactionTemplate);
+        ownerId = fixture.newUser();
+        bookerId = fixture.newUser();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < BOOKINGS; i++) {
+            Long itemId = fixture.newItem(ownerId);
+            bookingService.createBooking(new BookingAccept(itemId, start.plusHours(i), start.plusHours(i + 1)),
+                    i % 2 == 0 ? bookerId : fixture.newUser());
+        }
+    }
+
+    @Test
+    void bookerPageQueriesDoNotDependOnPageSize() {
+        long one = statements(() -> bookingService.findAllBookingsWithParametres(bookerId, PageRequest.of(0, 1), "ALL"));
+        long all = statements(() -> bookingService.findAllBookingsWithParametres(bookerId,
+                PageRequest.of(0, BOOKINGS), "ALL"));
+
+        assertEquals(2, all);
+        assertEquals(one, all);
+    }
+
+    @Test
+    void ownerPageQueriesDoNotDependOnPageSize() {
+        long one = statements(() -> bookingService.getBookingsForOwner(ownerId, "ALL", PageRequest.of(0, 1)));
+        long all = statements(() -> bookingService.getBookingsForOwner(ownerId, "ALL", PageRequest.of(0, BOOKINGS)));
+
+        assertEquals(2, all);
+        assertEquals(one, all);
+    }
+
+    @Test
+    void cursorPagesQueriesDoNotDependOnPageSize() {
+        List<BookingDto> first = bookingService.getBookingsForOwner(ownerId, "ALL", PageRequest.of(0, 1));
+        BookingCursor cursor = BookingCursor.decode(BookingCursor.next(first, 1));
+
+        long ownerOne = statements(() -> bookingService.getBookingsForOwnerBefore(ownerId, "ALL", cursor, 1));
+        long ownerAll = statements(() -> bookingService.getBookingsForOwnerBefore(ownerId, "ALL", cursor, BOOKINGS));
+        long bookerOne = statements(() -> bookingService.findAllBookingsBefore(bookerId, cursor, 1, "ALL"));
+        long bookerAll = statements(() -> bookingService.findAllBookingsBefore(bookerId, cursor, BOOKINGS, "ALL"));
+
+        assertEquals(2, ownerAll);
+        assertEquals(ownerOne, ownerAll);
+        assertEquals(2, bookerAll);
+        assertEquals(bookerOne, bookerAll);
+    }
+
+    /**
+     * Число подготовленных JDBC-запросов за вызов; страница должна быть не пустой.
+     */
+    private long statements(Supplier<List<BookingDto>> page) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertFalse(page.get().isEmpty());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,174 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.availability.BookingAvailabilityIndex;
+import ru.practicum.shareit.booking.dto.BookingAccept;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.UserService;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Поиск через индекс в памяти и через ItemRepository.search на одних данных возвращает одни и те же страницы,
+ * поиск свободных предметов - те же, что ItemRepository.searchFree.
+ */
+@SpringBootTest(properties = "shareit.search.in-memory-index=true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemSearchIndexTest {
+    private static final String[] QUERIES = {"ёртка", "ОТВЁР", "пила", "ручная пила", "пила ручная", "а", "ка",
+            "Drill", "RILL", "l", "x", "ка ", "несуществующее"};
+
+    private static final int[][] PAGES = {{0, 2}, {1, 2}, {2, 2}, {4, 2}, {0, 3}, {3, 3}, {0, 50}};
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemSearchIndex searchIndex;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LocalDateTime busyFrom;
+
+    @BeforeAll
+    void createItems() {
+        User owner = new User();
+        owner.setName("owner");
+        owner.setEmail("owner@search.test");
+        Long ownerId = userService.postUser(owner).getId();
+        newItem(ownerId, "Отвёртка", "Крестовая отвёртка", true);
+        newItem(ownerId, "Куртка", "Тёплая, с капюшоном", true);
+        Long handSawId = newItem(ownerId, "Пила ручная", "По дереву", true);
+        newItem(ownerId, "Лобзик", "Электрическая пила", true);
+        Long hacksawId = newItem(ownerId, "Ножовка", "Ручная пила по металлу", true);
+        newItem(ownerId, "Пила", "Списана", false);
+        Long drillId = newItem(ownerId, "Drill", "Power drill", true);
+        newItem(ownerId, "Набор", "Отвёртка, ключи, drill bits", true);
+        newItem(ownerId, "Ka", "Короткое", true);
+        newItem(ownerId, "Сумка ", "Спортивная сумка", true);
+
+        User booker = new User();
+        booker.setName("booker");
+        booker.setEmail("booker@search.test");
+        Long bookerId = userService.postUser(booker).getId();
+        busyFrom = LocalDateTime.now().plusDays(30);
+        bookingService.createBooking(new BookingAccept(handSawId, busyFrom, busyFrom.plusHours(2)), bookerId);
+        bookingService.createBooking(new BookingAccept(drillId, busyFrom.plusHours(1), busyFrom.plusHours(3)),
+                bookerId);
+        Long hacksawBooking = bookingService.createBooking(new BookingAccept(hacksawId, busyFrom.minusHours(1),
+                busyFrom.plusHours(1)), bookerId).getId();
+        bookingService.patchBooking(ownerId, true, hacksawBooking);
+    }
+
+    @Test
+    void indexReturnsSamePagesAsDatabase() {
+        assertTrue(searchIndex.isEnabled());
+        for (String query : QUERIES) {
+            for (int[] page : PAGES) {
+                int from = page[0];
+                int size = page[1];
+                List<Long> expected = itemRepository.search(query, PageRequest.of(from / size, size)).stream()
+                        .map(Item::getId)
+                        .collect(Collectors.toList());
+                List<Long> actual = search(query, from, size).stream()
+                        .map(ItemDto::getId)
+                        .collect(Collectors.toList());
+                assertEquals(expected, actual, "запрос '" + query + "', from " + from + ", size " + size);
+            }
+        }
+    }
+
+    @Test
+    void indexReturnsSameFreePagesAsDatabase() {
+        LocalDateTime start = busyFrom;
+        LocalDateTime end = busyFrom.plusHours(2);
+        for (String query : QUERIES) {
+            for (int[] page : PAGES) {
+                int from = page[0];
+                int size = page[1];
+                List<Long> expected = itemRepository.searchFree(query, BookingAvailabilityIndex.BUSY, start, end,
+                                PageRequest.of(from / size, size)).stream()
+                        .map(Item::getId)
+                        .collect(Collectors.toList());
+                List<Long> actual = searchFree(query, start, end, from, size).stream()
+                        .map(ItemDto::getId)
+                        .collect(Collectors.toList());
+                assertEquals(expected, actual, "запрос '" + query + "', from " + from + ", size " + size);
+            }
+        }
+        assertEquals(1, search("ручная пила", 0, 10).size());
+        assertTrue(searchFree("ручная пила", start, end).isEmpty());
+        assertEquals(1, searchFree("электрическая пила", start, end).size());
+    }
+
+    @Test
+    void indexMatchesInfixAndNamesFirst() {
+        List<String> names = search("ёртка", 0, 10).stream()
+                .map(ItemDto::getName)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of("Отвёртка", "Набор"), names);
+    }
+
+    @Test
+    void rolledBackItemIsNotIndexed() {
+        Long ownerId = userService.postUser(new User(null, "rollback", "rollback@search.test", null, null)).getId();
+        ItemDto item = new ItemDto();
+        item.setName("Стремянка");
+        item.setDescription("Откаченная");
+        item.setAvailable(true);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            itemService.addItem(item, ownerId);
+            status.setRollbackOnly();
+        });
+
+        assertTrue(search("Стремянка", 0, 10).isEmpty());
+    }
+
+    private List<ItemDto> search(String query, int from, int size) {
+        return transactionTemplate.execute(status -> itemService.searchItem(query, null, from, size));
+    }
+
+    private List<ItemDto> searchFree(String query, LocalDateTime start, LocalDateTime end) {
+        return searchFree(query, start, end, 0, 10);
+    }
+
+    private List<ItemDto> searchFree(String query, LocalDateTime start, LocalDateTime end, int from, int size) {
+        return transactionTemplate.execute(status -> itemService.searchFreeItems(query, start, end, from, size));
+    }
+
+    private Long newItem(Long ownerId, String name, String description, boolean available) {
+        ItemDto item = new ItemDto();
+        item.setName(name);
+        item.setDescription(description);
+        item.setAvailable(available);
+        return transactionTemplate.execute(status -> itemService.addItem(item, ownerId).getId());
+    }
+}